@@ -10,13 +10,23 @@
 
 package net.goui.flogger.backend.common;
 
+import com.google.common.flogger.backend.LogData;
 import com.google.common.flogger.backend.LogMessageFormatter;
 import com.google.common.flogger.backend.LoggerBackend;
+import com.google.common.flogger.backend.Metadata;
+import com.google.common.flogger.backend.MetadataProcessor;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
+import java.util.logging.Level;
 import net.goui.flogger.backend.common.formatter.DefaultPatternFormatter;
+import net.goui.flogger.backend.common.formatter.JsonMessageFormatter;
 
 /**
  * Helper class for implementing Flogger backend factories ({@code
@@ -29,11 +39,45 @@ import net.goui.flogger.backend.common.formatter.DefaultPatternFormatter;
  *
  * <ul>
  *   <li>flogger.message_formatter.impl: Plugin<br>
- *       The default implementation is {@link DefaultPatternFormatter}.
+ *       The default implementation is {@link DefaultPatternFormatter}. Use "json" to select the
+ *       built-in {@link JsonMessageFormatter}.
  *   <li>flogger.backend_naming.impl: Plugin<br>
  *       The default implementation is {@link DefaultNamingStrategy}.
  *   <li>flogger.backend_naming.use_backend_cache: Boolean<br>
  *       If set, backend instances will be cached by name for sharing between Fluent loggers.
+ *       Cached backends are weakly referenced, and cleared entries are removed automatically.
+ *   <li>flogger.backend_naming.cache_max_size: Integer<br>
+ *       The maximum number of weakly referenced backends to cache (default 0, meaning unbounded).
+ *       When the cache is full, the least recently used backend is evicted.
+ *   <li>flogger.backend_naming.pinned_backends: String[]<br>
+ *       A list of backend names for which backends are cached strongly, and never evicted.
+ *   <li>flogger.async.enabled: Boolean<br>
+ *       If set, backends returned by {@link #createBackend(String)} log asynchronously. Logging
+ *       threads only snapshot log statements onto a bounded queue, and formatting and output is
+ *       done by a dedicated thread. Pending log statements are processed during JVM shutdown.
+ *   <li>flogger.async.queue_size: Integer<br>
+ *       The maximum number of pending asynchronous log statements (default 8192).
+ *   <li>flogger.async.overflow_policy: Enum {BLOCK, DROP_LOWEST_LEVEL, DISCARD}<br>
+ *       What to do with log statements when the queue is full (default BLOCK). See {@link
+ *       AsyncDispatcher.OverflowPolicy}.
+ *   <li>flogger.async.shutdown_timeout_millis: Integer<br>
+ *       How long to wait for pending log statements to be processed during JVM shutdown (default
+ *       5000). Note that JVM shutdown hooks run concurrently, so if the underlying logging system
+ *       closes its output in its own shutdown hook (as JDK logging does), then log statements still
+ *       pending at shutdown may be lost.
+ *   <li>flogger.backend_metrics.enabled: Boolean<br>
+ *       If set, metrics about backend creation and caching are registered as a JMX MBean (see
+ *       {@link BackendMetricsMXBean}) when the first backend is created. These can be used to tune
+ *       the naming options to share backends more effectively.
+ *   <li>flogger.prewarm.enabled: Boolean<br>
+ *       If set, backends for all logger roots known to the naming strategy (see {@link
+ *       NamingStrategy#getRootNames()}), and for any system roots of the underlying logging system,
+ *       are created on a background thread when the first backend is created. A synthetic log
+ *       statement is also formatted (but not logged) to initialize the message formatter. This
+ *       reduces the latency of the first log statements after startup. Pre-warmed backends are
+ *       held strongly, so they are never garbage collected. Backends are only pre-warmed if backend
+ *       caching is enabled (otherwise they would never be shared with loggers), but the message
+ *       formatter is always pre-warmed.
  * </ul>
  *
  * <h3>Implementation Details</h3>
@@ -49,7 +93,7 @@ import net.goui.flogger.backend.common.formatter.DefaultPatternFormatter;
  *
  *   @Override
  *   public LoggerBackend create(String loggingClassName) {
- *     return LazyFactory.INSTANCE.create(loggingClassName);
+ *     return LazyFactory.INSTANCE.createBackend(loggingClassName);
  *   }
  *
  *   // Delays backend initialization to avoid reading options "too early".
@@ -72,17 +116,40 @@ import net.goui.flogger.backend.common.formatter.DefaultPatternFormatter;
  * }
  * }</pre>
  *
+ * <p>If the underlying logging system can be reconfigured at runtime, the system specific factory
+ * should also listen for configuration changes and call {@link #reconfigure(Options, List)}, so
+ * that changes to the message formatter take effect without a restart.
+ *
  * @param <T> the specific backend implementation returned by this factory.
  */
 public abstract class AbstractBackendFactory<T extends LoggerBackend> {
   private static final String PLUGIN_MESSAGE_FORMATTER = "message_formatter";
   private static final String PLUGIN_BACKEND_NAMING = "backend_naming";
   private static final String OPTION_USE_BACKEND_CACHE = "use_backend_cache";
+  private static final String OPTION_CACHE_MAX_SIZE = "cache_max_size";
+  private static final String OPTION_PINNED_BACKENDS = "pinned_backends";
   private static final String OPTION_NAMING_USE_SYSTEM_ROOTS = "use_system_roots";
+  private static final String OPTIONS_ASYNC = "async";
+  private static final String OPTION_ASYNC_ENABLED = "enabled";
+  private static final String OPTIONS_BACKEND_METRICS = "backend_metrics";
+  private static final String OPTION_METRICS_ENABLED = "enabled";
+  private static final String OPTIONS_PREWARM = "prewarm";
+  private static final String OPTION_PREWARM_ENABLED = "enabled";
 
-  private final NamingStrategy namingStrategy;
+  // The current naming strategy and formatter, replaced atomically by reconfigure().
+  private volatile Pipeline pipeline;
+  // Passed to all backends, so they see changes to the formatter after reconfiguration.
+  private final CurrentFormatter backendFormatter = new CurrentFormatter();
   private final Function<String, T> backendFn;
-  private final LogMessageFormatter backendFormatter;
+  // Null unless asynchronous logging is enabled.
+  private final AsyncDispatcher asyncDispatcher;
+  private final BackendMetrics metrics = new BackendMetrics();
+  // Set if metrics are enabled but not yet registered (registration is delayed until first use).
+  private final AtomicBoolean registerMetrics;
+  // Set to the names to pre-warm if enabled, and cleared when pre-warming is started.
+  private final AtomicReference<List<String>> pendingPrewarm;
+  // Pre-warmed backends, held strongly so they (and any underlying loggers) are not collected.
+  private volatile List<T> prewarmedBackends = List.of();
 
   /**
    * Initializes this factory with the backend generating function. This class then handles
@@ -93,20 +160,60 @@ public abstract class AbstractBackendFactory<T extends LoggerBackend> {
    *     logging system (only used if the option "use_system_roots" was set).
    */
   protected AbstractBackendFactory(Options options, List<String> systemRoots) {
+    // Options are read by several plugins, and again for each backend created, so resolve each
+    // value at most once (changes to the underlying options are handled via reconfigure()).
+    Options snapshot = options.snapshot();
     // Must not call any code which might risk triggering reentrant Flogger logging.
-    this.namingStrategy = NamingStrategy.from(getNamingOptions(options, systemRoots));
-    this.backendFormatter =
-        PluginLoader.instantiate(
-            LogMessageFormatter.class,
-            options.getOptions(PLUGIN_MESSAGE_FORMATTER),
-            Map.of("default", DefaultPatternFormatter::new));
-    Function<String, T> curriedBackendFn = name -> newBackend(name, backendFormatter, options);
+    this.pipeline = Pipeline.create(snapshot, systemRoots);
+    Options namingOptions = snapshot.getOptions(PLUGIN_BACKEND_NAMING);
+    Function<String, T> curriedBackendFn =
+        name -> {
+          metrics.recordBackend();
+          return newBackend(name, backendFormatter, snapshot);
+        };
     boolean shouldCacheBackends =
-        options.getBoolean(OPTION_USE_BACKEND_CACHE, namingStrategy.shouldCacheBackends());
+        snapshot.getBoolean(
+            OPTION_USE_BACKEND_CACHE, pipeline.namingStrategy.shouldCacheBackends());
     this.backendFn =
         shouldCacheBackends
-            ? new LoggerBackendCache<>(curriedBackendFn)::getBackend
+            ? new LoggerBackendCache<>(
+                    curriedBackendFn,
+                    (int) namingOptions.getLong(OPTION_CACHE_MAX_SIZE, 0),
+                    Set.copyOf(namingOptions.getStringArray(OPTION_PINNED_BACKENDS)),
+                    metrics)
+                ::getBackend
             : curriedBackendFn;
+    Options asyncOptions = snapshot.getOptions(OPTIONS_ASYNC);
+    this.asyncDispatcher =
+        asyncOptions.getBoolean(OPTION_ASYNC_ENABLED, false)
+            ? AsyncDispatcher.start(asyncOptions)
+            : null;
+    this.registerMetrics =
+        new AtomicBoolean(
+            snapshot.getOptions(OPTIONS_BACKEND_METRICS).getBoolean(OPTION_METRICS_ENABLED, false));
+    List<String> prewarmNames = null;
+    if (snapshot.getOptions(OPTIONS_PREWARM).getBoolean(OPTION_PREWARM_ENABLED, false)) {
+      if (shouldCacheBackends) {
+        prewarmNames = getPrewarmNames(pipeline.namingStrategy, systemRoots);
+      } else {
+        // Uncached backends are never returned by create(), so pre-warming them would only create
+        // (and retain) unused instances. Logging this might recurse back into this factory.
+        System.err.println(
+            "Flogger backend pre-warming requires backend caching (only pre-warming formatter)");
+        prewarmNames = List.of();
+      }
+    }
+    this.pendingPrewarm = new AtomicReference<>(prewarmNames);
+  }
+
+  /** Returns the distinct, non-empty root names from the naming strategy and the system roots. */
+  private static List<String> getPrewarmNames(
+      NamingStrategy namingStrategy, List<String> systemRoots) {
+    Set<String> names = new LinkedHashSet<>(namingStrategy.getRootNames());
+    names.addAll(systemRoots);
+    // Don't pre-warm the unnamed system root, since nothing should be mapped to it by default.
+    names.remove("");
+    return List.copyOf(names);
   }
 
   /**
@@ -119,11 +226,44 @@ public abstract class AbstractBackendFactory<T extends LoggerBackend> {
   protected abstract T newBackend(
       String backendName, LogMessageFormatter formatter, Options options);
 
+  /**
+   * Rebuilds the naming strategy and message formatter from the given options (e.g. after the
+   * underlying logging system was reconfigured). This should be called by system specific backend
+   * factories when they are notified of configuration changes.
+   *
+   * <p>The new configuration is published atomically, so log statements being processed
+   * concurrently will use either the old or new formatter, and logging never waits for
+   * reconfiguration. Existing backends will use the new formatter, but since Flogger binds a
+   * backend to each logger when it is created, a new naming strategy only affects loggers created
+   * after reconfiguration. Other options (e.g. backend caching and asynchronous logging) cannot be
+   * changed after initialization.
+   *
+   * <p>If the new options are invalid, the existing configuration is retained and the error is
+   * reported to {@code System.err} (logging it might recurse back into this factory).
+   *
+   * @param options Flogger options derived from the underlying logging system.
+   * @param systemRoots the names of any system loggers statically configured for the underlying
+   *     logging system (only used if the option "use_system_roots" was set).
+   * @return whether the new configuration was applied.
+   */
+  protected final boolean reconfigure(Options options, List<String> systemRoots) {
+    // Must not call any code which might risk triggering reentrant Flogger logging.
+    Pipeline newPipeline;
+    try {
+      newPipeline = Pipeline.create(options.snapshot(), systemRoots);
+    } catch (RuntimeException e) {
+      System.err.println("Flogger reconfiguration failed (keeping existing configuration): " + e);
+      return false;
+    }
+    this.pipeline = newPipeline;
+    return true;
+  }
+
   /**
    * Returns options suitable for configuring a naming strategy, possibly including additional
    * entries for system roots if the option "use_system_roots" was set.
    */
-  private Options getNamingOptions(Options options, List<String> systemRoots) {
+  private static Options getNamingOptions(Options options, List<String> systemRoots) {
     Options namingOptions = options.getOptions(PLUGIN_BACKEND_NAMING);
     if (!systemRoots.isEmpty() && namingOptions.getBoolean(OPTION_NAMING_USE_SYSTEM_ROOTS, false)) {
       Map<String, String> optionsMap = new HashMap<>();
@@ -142,11 +282,108 @@ public abstract class AbstractBackendFactory<T extends LoggerBackend> {
    * Fluent loggers.
    */
   public final T create(String loggingClassName) {
-    return backendFn.apply(namingStrategy.getBackendName(loggingClassName));
+    // Registering the MBean can initialize JMX, which must not happen while the factory is being
+    // created, so it is done here. Only the first caller sees true, so it is done at most once.
+    if (registerMetrics.get() && registerMetrics.compareAndSet(true, false)) {
+      metrics.register(getClass().getName());
+    }
+    // Like registering metrics, pre-warming is started here rather than in the constructor, so the
+    // background thread never sees a partially initialized instance.
+    if (pendingPrewarm.get() != null) {
+      List<String> prewarmNames = pendingPrewarm.getAndSet(null);
+      if (prewarmNames != null) {
+        Thread prewarmThread = new Thread(() -> prewarm(prewarmNames), "flogger-prewarm");
+        prewarmThread.setDaemon(true);
+        prewarmThread.start();
+      }
+    }
+    String backendName = pipeline.namingStrategy.getBackendName(loggingClassName);
+    metrics.recordLogger(backendName);
+    return backendFn.apply(backendName);
   }
 
-  /** Returns the configured message formatter for use by system specific backends. */
+  /**
+   * Creates backends for the given names (as if they were logging class names) and formats a
+   * synthetic log statement. This bypasses {@link #create(String)} so that pre-warmed backends are
+   * not counted as loggers in the backend metrics.
+   */
+  private void prewarm(List<String> names) {
+    try {
+      List<T> backends = new ArrayList<>(names.size());
+      for (String name : names) {
+        T backend = backendFn.apply(pipeline.namingStrategy.getBackendName(name));
+        // Backends can bind to the underlying logger lazily, so ensure that is done now.
+        boolean unused = backend.isLoggable(Level.INFO);
+        backends.add(backend);
+      }
+      prewarmedBackends = backends;
+      LogData logData = new PrewarmLogData(names.isEmpty() ? "" : names.get(0));
+      MetadataProcessor metadata =
+          MetadataProcessor.forScopeAndLogSite(Metadata.empty(), logData.getMetadata());
+      String unusedMessage = backendFormatter.format(logData, metadata);
+    } catch (RuntimeException e) {
+      // Logging this might recurse back into this factory.
+      System.err.println("Flogger backend pre-warming failed: " + e);
+    }
+  }
+
+  /** Returns the backends created by pre-warming, or an empty list if not yet done (for testing). */
+  final List<T> getPrewarmedBackends() {
+    return prewarmedBackends;
+  }
+
+  /**
+   * Returns a logger backend for the given logging class name, as returned by {@link
+   * #create(String)}, but which logs asynchronously if the option "async.enabled" was set. This is
+   * the method which should be called by the system specific {@code BackendFactory}.
+   */
+  public final LoggerBackend createBackend(String loggingClassName) {
+    T backend = create(loggingClassName);
+    return asyncDispatcher != null ? new AsyncBackend(backend, asyncDispatcher) : backend;
+  }
+
+  /**
+   * Returns the configured message formatter for use by system specific backends. The formatter can
+   * change after reconfiguration, so callers should not retain the returned instance.
+   */
   public final LogMessageFormatter getMessageFormatter() {
-    return backendFormatter;
+    return pipeline.formatter;
+  }
+
+  /** The parts of the factory configuration which can be changed by reconfiguration. */
+  private static final class Pipeline {
+    private final NamingStrategy namingStrategy;
+    private final LogMessageFormatter formatter;
+
+    static Pipeline create(Options options, List<String> systemRoots) {
+      NamingStrategy namingStrategy = NamingStrategy.from(getNamingOptions(options, systemRoots));
+      LogMessageFormatter formatter =
+          PluginLoader.instantiate(
+              LogMessageFormatter.class,
+              options.getOptions(PLUGIN_MESSAGE_FORMATTER),
+              Map.of("default", DefaultPatternFormatter::new, "json", JsonMessageFormatter::new));
+      return new Pipeline(namingStrategy, formatter);
+    }
+
+    private Pipeline(NamingStrategy namingStrategy, LogMessageFormatter formatter) {
+      this.namingStrategy = namingStrategy;
+      this.formatter = formatter;
+    }
+  }
+
+  /**
+   * Formatter given to backends, which delegates to the current formatter. Each call reads the
+   * current formatter once, so a log statement is never formatted partly by an old formatter.
+   */
+  private final class CurrentFormatter extends LogMessageFormatter {
+    @Override
+    public String format(LogData logData, MetadataProcessor metadata) {
+      return pipeline.formatter.format(logData, metadata);
+    }
+
+    @Override
+    public StringBuilder append(LogData logData, MetadataProcessor metadata, StringBuilder buffer) {
+      return pipeline.formatter.append(logData, metadata, buffer);
+    }
   }
 }
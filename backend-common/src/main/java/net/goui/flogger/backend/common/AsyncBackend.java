@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.backend.common;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.flogger.backend.LogData;
+import com.google.common.flogger.backend.LoggerBackend;
+import java.util.logging.Level;
+
+/**
+ * Logger backend which wraps a system specific backend to log asynchronously via an {@link
+ * AsyncDispatcher}. Level checks are still made synchronously by the wrapped backend.
+ */
+final class AsyncBackend extends LoggerBackend {
+  private final LoggerBackend delegate;
+  private final AsyncDispatcher dispatcher;
+
+  AsyncBackend(LoggerBackend delegate, AsyncDispatcher dispatcher) {
+    this.delegate = requireNonNull(delegate);
+    this.dispatcher = requireNonNull(dispatcher);
+  }
+
+  @Override
+  public String getLoggerName() {
+    return delegate.getLoggerName();
+  }
+
+  @Override
+  public boolean isLoggable(Level level) {
+    return delegate.isLoggable(level);
+  }
+
+  @Override
+  public void log(LogData data) {
+    dispatcher.dispatch(delegate, data);
+  }
+
+  @Override
+  public void handleError(RuntimeException error, LogData badData) {
+    delegate.handleError(error, badData);
+  }
+
+  /** Returns the system specific backend to which log statements are dispatched. */
+  LoggerBackend getDelegate() {
+    return delegate;
+  }
+}
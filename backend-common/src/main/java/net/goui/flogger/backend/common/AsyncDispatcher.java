@@ -0,0 +1,268 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.backend.common;
+
+import com.google.common.flogger.backend.LogData;
+import com.google.common.flogger.backend.LoggerBackend;
+import com.google.common.flogger.backend.Platform;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+
+/**
+ * Dispatches log statements to backends asynchronously via a bounded queue and a single consumer
+ * thread.
+ *
+ * <p>Logging threads only take a {@link LogDataSnapshot snapshot} of each log statement and add it
+ * to the queue, leaving all formatting and I/O to the consumer thread. If the queue is full, the
+ * configured {@link OverflowPolicy} determines whether the logging thread blocks or the log
+ * statement is dropped.
+ *
+ * <p>Log statements are processed synchronously (in the logging thread) if they are made by the
+ * consumer thread itself (e.g. from code called by a backend, which would otherwise risk deadlock)
+ * or after the dispatcher has been shut down.
+ *
+ * <p>During JVM shutdown, pending log statements are processed for up to the configured timeout.
+ * Since the consumer is a daemon thread, any log statements still pending after the timeout (e.g.
+ * due to a slow backend) are lost when the JVM exits. Log statements added to the queue by logging
+ * threads which race with the end of shutdown (after the queue was last drained) can also be lost.
+ *
+ * <h3>Options</h3>
+ *
+ * <ul>
+ *   <li>{@code queue_size}: Integer<br>
+ *       The maximum number of pending log statements (rounded up to a power of two). The default is
+ *       {@value #DEFAULT_QUEUE_SIZE}, which is also used (with a warning) if the given value is not
+ *       in the range 1 to {@value #MAX_QUEUE_SIZE}.
+ *   <li>{@code overflow_policy}: {@link OverflowPolicy}<br>
+ *       What to do when the queue is full. The default is {@code BLOCK}.
+ *   <li>{@code shutdown_timeout_millis}: Integer<br>
+ *       How long to wait for pending log statements to be processed during JVM shutdown. The
+ *       default is {@value #DEFAULT_SHUTDOWN_TIMEOUT_MILLIS}.
+ * </ul>
+ */
+final class AsyncDispatcher {
+  /** Determines how log statements are handled when the queue is full. */
+  public enum OverflowPolicy {
+    /** Logging threads wait until the queue has space (no log statements are lost). */
+    BLOCK,
+    /**
+     * Lower level log statements are dropped as the queue fills up, so that the most important log
+     * statements are least likely to be lost. Log statements below {@code INFO} are dropped once
+     * the queue is half full and those below {@code WARNING} are dropped once the queue is three
+     * quarters full. When the queue is full, {@code WARNING} log statements are also dropped, but
+     * {@code SEVERE} log statements will block until the queue has space.
+     */
+    DROP_LOWEST_LEVEL,
+    /** Log statements are dropped when the queue is full (logging threads never wait). */
+    DISCARD,
+  }
+
+  private static final String OPTION_QUEUE_SIZE = "queue_size";
+  private static final String OPTION_OVERFLOW_POLICY = "overflow_policy";
+  private static final String OPTION_SHUTDOWN_TIMEOUT = "shutdown_timeout_millis";
+
+  private static final int DEFAULT_QUEUE_SIZE = 8192;
+  private static final int MAX_QUEUE_SIZE = 1 << 30;
+  private static final int DEFAULT_SHUTDOWN_TIMEOUT_MILLIS = 5000;
+
+  // How long the consumer thread waits before re-checking the queue (in case a wake-up is missed).
+  private static final long CONSUMER_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+  // How long a blocked logging thread waits before re-checking the queue.
+  private static final long PRODUCER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+  private final BoundedQueue<LogDataSnapshot> queue;
+  private final OverflowPolicy overflowPolicy;
+  private final Thread consumer;
+  private final LongAdder droppedCount = new LongAdder();
+
+  private volatile boolean consumerWaiting = false;
+  private volatile boolean isShutdown = false;
+
+  /**
+   * Creates and starts a dispatcher configured by the given options. A JVM shutdown hook is added
+   * to process any pending log statements before the JVM exits.
+   */
+  static AsyncDispatcher start(Options options) {
+    long queueSize = options.getLong(OPTION_QUEUE_SIZE, DEFAULT_QUEUE_SIZE);
+    if (queueSize <= 0 || queueSize > MAX_QUEUE_SIZE) {
+      // A bad queue size should not prevent logging entirely (this is called during backend factory
+      // initialization). This is reported to System.err, since logging it would recurse.
+      System.err.println(
+          "Invalid Flogger async queue size (using " + DEFAULT_QUEUE_SIZE + "): " + queueSize);
+      queueSize = DEFAULT_QUEUE_SIZE;
+    }
+    AsyncDispatcher dispatcher =
+        new AsyncDispatcher(
+            (int) queueSize, options.getEnum(OPTION_OVERFLOW_POLICY, OverflowPolicy.BLOCK));
+    long timeoutMillis = options.getLong(OPTION_SHUTDOWN_TIMEOUT, DEFAULT_SHUTDOWN_TIMEOUT_MILLIS);
+    try {
+      Runtime.getRuntime()
+          .addShutdownHook(
+              new Thread(() -> dispatcher.shutdown(timeoutMillis), "flogger-async-shutdown"));
+    } catch (IllegalStateException e) {
+      // Already shutting down, so start synchronous logging immediately.
+      dispatcher.shutdown(0);
+    }
+    return dispatcher;
+  }
+
+  AsyncDispatcher(int queueSize, OverflowPolicy overflowPolicy) {
+    this.queue = new BoundedQueue<>(queueSize);
+    this.overflowPolicy = overflowPolicy;
+    this.consumer = new Thread(this::processQueue, "flogger-async-dispatcher");
+    consumer.setDaemon(true);
+    consumer.start();
+  }
+
+  /**
+   * Dispatches a log statement to the given backend, either by adding a snapshot of it to the queue
+   * or, if that's not possible, by logging it synchronously.
+   */
+  void dispatch(LoggerBackend backend, LogData data) {
+    if (isShutdown || Thread.currentThread() == consumer) {
+      backend.log(data);
+      return;
+    }
+    Level level = data.getLevel();
+    if (shouldDrop(level)) {
+      droppedCount.increment();
+      return;
+    }
+    LogDataSnapshot snapshot = new LogDataSnapshot(data, Platform.getInjectedMetadata(), backend);
+    while (!queue.offer(snapshot)) {
+      if (overflowPolicy == OverflowPolicy.DISCARD
+          || (overflowPolicy == OverflowPolicy.DROP_LOWEST_LEVEL
+              && level.intValue() < Level.SEVERE.intValue())) {
+        droppedCount.increment();
+        return;
+      }
+      if (isShutdown) {
+        backend.log(snapshot);
+        return;
+      }
+      wakeConsumer();
+      LockSupport.parkNanos(this, PRODUCER_PARK_NANOS);
+    }
+    wakeConsumer();
+  }
+
+  private boolean shouldDrop(Level level) {
+    if (overflowPolicy != OverflowPolicy.DROP_LOWEST_LEVEL) {
+      return false;
+    }
+    int value = level.intValue();
+    if (value >= Level.WARNING.intValue()) {
+      // Full queues are handled when adding to the queue.
+      return false;
+    }
+    // Multiply rather than divide to avoid rounding issues.
+    int used = 4 * queue.size();
+    int capacity = queue.capacity();
+    return used >= 3 * capacity || (used >= 2 * capacity && value < Level.INFO.intValue());
+  }
+
+  private void wakeConsumer() {
+    if (consumerWaiting) {
+      LockSupport.unpark(consumer);
+    }
+  }
+
+  private void processQueue() {
+    try {
+      while (true) {
+        LogDataSnapshot snapshot = queue.poll();
+        if (snapshot != null) {
+          log(snapshot);
+          continue;
+        }
+        if (isShutdown) {
+          if (queue.isEmpty()) {
+            return;
+          }
+          // A logging thread has claimed a slot but not yet published its entry.
+          Thread.onSpinWait();
+          continue;
+        }
+        // Both flags are volatile, so either a producer sees "consumerWaiting" after adding to the
+        // queue, or this thread sees the new queue entry before parking.
+        consumerWaiting = true;
+        if (queue.isEmpty() && !isShutdown) {
+          LockSupport.parkNanos(this, CONSUMER_PARK_NANOS);
+        }
+        consumerWaiting = false;
+      }
+    } finally {
+      // If this thread dies unexpectedly, avoid blocking logging threads forever.
+      isShutdown = true;
+    }
+  }
+
+  private static void log(LogDataSnapshot snapshot) {
+    LoggerBackend backend = snapshot.target;
+    try {
+      backend.log(snapshot);
+    } catch (RuntimeException error) {
+      try {
+        backend.handleError(error, snapshot);
+      } catch (RuntimeException e) {
+        // As in the core Flogger library, don't swallow logging errors silently.
+        System.err.println("logging error: " + e.getMessage());
+        e.printStackTrace(System.err);
+      }
+    }
+  }
+
+  /**
+   * Stops asynchronous logging and waits up to the given timeout for pending log statements to be
+   * processed. Any log statements made after this method is called are processed synchronously.
+   *
+   * <p>If the consumer thread is still processing log statements when the timeout expires, this
+   * method returns without waiting further, and the remaining log statements are only processed if
+   * the consumer thread gets to them before the JVM exits.
+   */
+  void shutdown(long timeoutMillis) {
+    isShutdown = true;
+    LockSupport.unpark(consumer);
+    long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(timeoutMillis, 1));
+    long deadline = System.nanoTime() + timeoutNanos;
+    try {
+      consumer.join(Math.max(timeoutMillis, 1));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    // The queue cannot be drained here while the consumer is still alive (it has one consumer).
+    if (!consumer.isAlive()) {
+      // Now the consumer has exited, this thread can safely take over to process any statements
+      // added to the queue by logging threads which raced with the shutdown. Slots which have been
+      // claimed, but not yet published, are waited for until the deadline.
+      while (!queue.isEmpty() && System.nanoTime() - deadline < 0) {
+        LogDataSnapshot snapshot = queue.poll();
+        if (snapshot != null) {
+          log(snapshot);
+        } else {
+          Thread.onSpinWait();
+        }
+      }
+    }
+  }
+
+  /** Returns the number of log statements dropped because the queue was full. */
+  long getDroppedCount() {
+    return droppedCount.sum();
+  }
+
+  /** Returns the (approximate) number of pending log statements. */
+  int getQueueSize() {
+    return queue.size();
+  }
+}
@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.backend.common;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters for backend creation and caching, exposed via JMX. This class is thread safe, and uses
+ * {@link LongAdder}s to avoid contention between threads creating loggers concurrently.
+ */
+final class BackendMetrics implements BackendMetricsMXBean {
+  // Bigger than the number of distinct backend names in most applications when a naming strategy
+  // is being used to share backends, but small enough to avoid memory issues if it is not.
+  private static final int MAX_FAN_IN_SIZE = 4096;
+
+  private final LongAdder loggerCount = new LongAdder();
+  private final LongAdder backendCount = new LongAdder();
+  private final LongAdder cachedBackendCount = new LongAdder();
+  private final LongAdder cacheHitCount = new LongAdder();
+  private final LongAdder cacheMissCount = new LongAdder();
+  private final LongAdder cacheEvictionCount = new LongAdder();
+  private final LongAdder clearedReferenceCount = new LongAdder();
+  private final ConcurrentHashMap<String, LongAdder> fanIn = new ConcurrentHashMap<>();
+
+  /** Records that a backend with the given name was requested for a new logger. */
+  void recordLogger(String backendName) {
+    loggerCount.increment();
+    LongAdder count = fanIn.get(backendName);
+    if (count == null) {
+      // Once full, new backend names are no longer tracked (but existing ones still are).
+      if (fanIn.size() >= MAX_FAN_IN_SIZE) {
+        return;
+      }
+      count = fanIn.computeIfAbsent(backendName, k -> new LongAdder());
+    }
+    count.increment();
+  }
+
+  /** Records that a new backend instance was created. */
+  void recordBackend() {
+    backendCount.increment();
+  }
+
+  /**
+   * Records that a newly created backend instance was discarded, because another thread added a
+   * backend with the same name to the cache first. This instance is then not included in the
+   * backend count, since it is never used.
+   */
+  void recordDiscardedBackend() {
+    backendCount.decrement();
+  }
+
+  /** Records that a requested backend was found in the cache. */
+  void recordCacheHit() {
+    cacheHitCount.increment();
+  }
+
+  /** Records that a requested backend was not found in the cache. */
+  void recordCacheMiss() {
+    cacheMissCount.increment();
+  }
+
+  /** Records that a new entry was added to the cache. */
+  void recordCacheEntryAdded() {
+    cachedBackendCount.increment();
+  }
+
+  /** Records that the least recently used cache entry was evicted. */
+  void recordCacheEviction() {
+    cachedBackendCount.decrement();
+    cacheEvictionCount.increment();
+  }
+
+  /**
+   * Records that a weak reference to a cached backend was cleared.
+   *
+   * @param wasRemoved whether the cleared reference was still in the cache (i.e. it had not
+   *     already been evicted or replaced).
+   */
+  void recordClearedReference(boolean wasRemoved) {
+    if (wasRemoved) {
+      cachedBackendCount.decrement();
+    }
+    clearedReferenceCount.increment();
+  }
+
+  /**
+   * Registers this instance with the platform MBean server under the given name. Errors are
+   * reported to {@code System.err} (logging them might recurse back into the backend factory).
+   */
+  void register(String name) {
+    try {
+      ObjectName objectName =
+          new ObjectName("net.goui.flogger:type=BackendMetrics,name=" + ObjectName.quote(name));
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+    } catch (JMException | RuntimeException e) {
+      System.err.println("Cannot register Flogger backend metrics: " + e);
+    }
+  }
+
+  @Override
+  public long getLoggerCount() {
+    return loggerCount.sum();
+  }
+
+  @Override
+  public long getBackendCount() {
+    return backendCount.sum();
+  }
+
+  @Override
+  public long getCachedBackendCount() {
+    return cachedBackendCount.sum();
+  }
+
+  @Override
+  public long getCacheHitCount() {
+    return cacheHitCount.sum();
+  }
+
+  @Override
+  public long getCacheMissCount() {
+    return cacheMissCount.sum();
+  }
+
+  @Override
+  public double getCacheHitRatio() {
+    long hits = cacheHitCount.sum();
+    long total = hits + cacheMissCount.sum();
+    return total > 0 ? (double) hits / total : 0.0;
+  }
+
+  @Override
+  public long getCacheEvictionCount() {
+    return cacheEvictionCount.sum();
+  }
+
+  @Override
+  public long getClearedReferenceCount() {
+    return clearedReferenceCount.sum();
+  }
+
+  @Override
+  public Map<String, Long> getBackendNameFanIn() {
+    Map<String, Long> snapshot = new TreeMap<>();
+    fanIn.forEach((name, count) -> snapshot.put(name, count.sum()));
+    return snapshot;
+  }
+}
@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.backend.common;
+
+import java.util.Map;
+
+/**
+ * JMX view of the backend metrics for a Flogger backend factory. This is registered (under the
+ * domain "net.goui.flogger") if the option "flogger.backend_metrics.enabled" is set, and can be
+ * used to see how effectively the naming strategy and backend cache are sharing backends between
+ * loggers (e.g. when tuning the "trim_at_least", "retain_at_most" or "roots" naming options).
+ *
+ * <p>All counts are cumulative since the backend factory was created. Backends are only created
+ * when loggers are created, so these values do not change when log statements are processed.
+ */
+public interface BackendMetricsMXBean {
+  /** Returns the number of loggers for which a backend was requested. */
+  long getLoggerCount();
+
+  /**
+   * Returns the number of backend instances created and handed out (including any which are no
+   * longer used). Instances discarded after losing a race with another thread to create a backend
+   * are not counted.
+   */
+  long getBackendCount();
+
+  /**
+   * Returns the number of backends currently held by the backend cache (including pinned backends),
+   * or zero if backends are not cached.
+   */
+  long getCachedBackendCount();
+
+  /** Returns the number of requests for a backend which were satisfied by the backend cache. */
+  long getCacheHitCount();
+
+  /** Returns the number of requests for a backend which required a new backend to be created. */
+  long getCacheMissCount();
+
+  /**
+   * Returns the ratio of cache hits to the total number of cache requests, or zero if there were
+   * no requests.
+   */
+  double getCacheHitRatio();
+
+  /** Returns the number of backends evicted from the backend cache due to its maximum size. */
+  long getCacheEvictionCount();
+
+  /** Returns the number of weak references to cached backends which were cleared. */
+  long getClearedReferenceCount();
+
+  /**
+   * Returns the number of loggers mapped to each backend name (i.e. the "fan-in" of each backend).
+   * To bound memory use, only a limited number of distinct backend names are tracked.
+   */
+  Map<String, Long> getBackendNameFanIn();
+}
@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.backend.common;
+
+import com.google.common.flogger.backend.BaseMessageFormatter;
+import com.google.common.flogger.backend.LogData;
+import com.google.common.flogger.backend.TemplateContext;
+import com.google.common.flogger.parameter.Parameter;
+
+/**
+ * Printf style message formatter which stops formatting arguments once the formatted message
+ * exceeds a maximum length. Any remaining message text is appended without formatting, so the
+ * caller must truncate the appended text, but the cost of formatting arguments which would be
+ * truncated anyway is avoided.
+ *
+ * <p>Messages no longer than the maximum length are formatted exactly as by {@link
+ * BaseMessageFormatter#appendFormattedMessage(LogData, StringBuilder)}.
+ */
+final class BoundedMessageFormatter extends BaseMessageFormatter {
+  // Matches the text appended by BaseMessageFormatter (which is not accessible).
+  private static final String EXTRA_ARGUMENT_MESSAGE = " [ERROR: UNUSED LOG ARGUMENTS]";
+
+  /**
+   * Appends the formatted printf style message in the given log data to a buffer, but stops
+   * formatting arguments once more than {@code maxLength} characters have been appended.
+   */
+  static StringBuilder appendFormattedMessage(LogData logData, StringBuilder out, int maxLength) {
+    TemplateContext context = logData.getTemplateContext();
+    Object[] args = logData.getArguments();
+    int limit = (int) Math.min((long) out.length() + maxLength, Integer.MAX_VALUE);
+    BoundedMessageFormatter formatter = new BoundedMessageFormatter(context, args, out, limit);
+    formatter.build();
+    if (args.length > formatter.getExpectedArgumentCount()) {
+      out.append(EXTRA_ARGUMENT_MESSAGE);
+    }
+    return out;
+  }
+
+  // The buffer length beyond which no more arguments are formatted.
+  private final int limit;
+
+  private BoundedMessageFormatter(
+      TemplateContext context, Object[] args, StringBuilder out, int limit) {
+    super(context, args, out);
+    this.limit = limit;
+  }
+
+  @Override
+  public void addParameterImpl(int termStart, int termEnd, Parameter param) {
+    // Skipping a parameter leaves its term (and any subsequent text) to be appended as a literal
+    // when the message is built, but that is all beyond the limit and will be truncated.
+    if (out.length() <= limit) {
+      super.addParameterImpl(termStart, termEnd, param);
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.backend.common;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free, multi-producer single-consumer queue, implemented as a ring buffer.
+ *
+ * <p>Each slot in the ring buffer has a sequence number which tells producers and the consumer
+ * whether the slot is available for writing or reading (based on Dmitry Vyukov's bounded queue).
+ * Producers only contend with each other when claiming a slot, and never with the consumer. Unlike
+ * {@code ArrayBlockingQueue}, no locks are taken, so a producer can never be descheduled while
+ * holding a lock needed by other producers.
+ *
+ * <p>Only {@link #offer(Object)} may be called concurrently. The {@link #poll()} method must only
+ * ever be called by a single thread at a time.
+ */
+final class BoundedQueue<T> {
+  private final int mask;
+  private final AtomicReferenceArray<T> elements;
+  // For slot (n & mask): == n when free for writing at position n, == n + 1 when holding the
+  // element written at position n (ready to be read).
+  private final AtomicLongArray sequences;
+  // Next position to be claimed by a producer.
+  private final AtomicLong tail = new AtomicLong();
+  // Next position to be read by the consumer (volatile only to allow size() to be called).
+  private volatile long head = 0;
+
+  /** Creates a queue whose capacity is the given size, rounded up to a power of two. */
+  BoundedQueue(int minCapacity) {
+    if (minCapacity <= 0 || minCapacity > (1 << 30)) {
+      throw new IllegalArgumentException("invalid queue capacity: " + minCapacity);
+    }
+    int capacity = Integer.highestOneBit(minCapacity);
+    if (capacity < minCapacity) {
+      capacity <<= 1;
+    }
+    this.mask = capacity - 1;
+    this.elements = new AtomicReferenceArray<>(capacity);
+    this.sequences = new AtomicLongArray(capacity);
+    for (int n = 0; n < capacity; n++) {
+      sequences.set(n, n);
+    }
+  }
+
+  /** Adds an element to the queue, returning {@code false} (immediately) if the queue is full. */
+  boolean offer(T element) {
+    requireNonNull(element);
+    long pos = tail.get();
+    while (true) {
+      int index = (int) pos & mask;
+      long delta = sequences.get(index) - pos;
+      if (delta == 0) {
+        if (tail.compareAndSet(pos, pos + 1)) {
+          elements.lazySet(index, element);
+          // Publishes the element to the consumer.
+          sequences.set(index, pos + 1);
+          return true;
+        }
+        pos = tail.get();
+      } else if (delta < 0) {
+        // The slot still holds an element from the previous time around the ring buffer.
+        return false;
+      } else {
+        // Another producer claimed this position.
+        pos = tail.get();
+      }
+    }
+  }
+
+  /** Removes the next element from the queue, returning {@code null} if the queue is empty. */
+  T poll() {
+    long pos = head;
+    int index = (int) pos & mask;
+    if (sequences.get(index) != pos + 1) {
+      return null;
+    }
+    T element = elements.get(index);
+    elements.lazySet(index, null);
+    // Releases the slot for the next time around the ring buffer.
+    sequences.set(index, pos + mask + 1);
+    head = pos + 1;
+    return element;
+  }
+
+  /** Returns the (approximate) number of elements in the queue. */
+  int size() {
+    long size = tail.get() - head;
+    return (int) Math.max(0, Math.min(size, capacity()));
+  }
+
+  boolean isEmpty() {
+    return size() == 0;
+  }
+
+  int capacity() {
+    return mask + 1;
+  }
+}
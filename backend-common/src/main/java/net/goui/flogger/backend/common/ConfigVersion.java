@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.backend.common;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MutableCallSite;
+
+/**
+ * A global version token for the configuration of the underlying logging system, which allows
+ * backends to cache values derived from the configuration (e.g. log level thresholds) cheaply.
+ *
+ * <p>Backends which cache configuration derived values should store them together with the token
+ * returned by {@link #current()} at the time they were derived, and re-derive them if the current
+ * token is no longer the same instance. Backends must then arrange for {@link #invalidate()} to be
+ * called whenever the underlying configuration changes (e.g. via a configuration listener).
+ *
+ * <p>The current token is held in a {@link MutableCallSite}, which the JIT compiler treats as a
+ * constant (deoptimizing dependent code when it is changed). This means that, in compiled code,
+ * checking whether a cached value is still valid costs no more than a field read and a comparison
+ * (there is no volatile read), and if the value itself is a constant (e.g. the backend is a static
+ * field) the whole check can be folded away. Invalidation is expensive, but configuration changes
+ * are rare.
+ */
+public final class ConfigVersion {
+  private static final MutableCallSite VERSION = new MutableCallSite(newVersion());
+  private static final MethodHandle CURRENT_VERSION = VERSION.dynamicInvoker();
+
+  private static MethodHandle newVersion() {
+    return MethodHandles.constant(Object.class, new Object());
+  }
+
+  /** Returns the current version token (to be compared by identity). */
+  public static Object current() {
+    try {
+      return (Object) CURRENT_VERSION.invokeExact();
+    } catch (Throwable t) {
+      // A constant method handle cannot throw.
+      throw new AssertionError(t);
+    }
+  }
+
+  /**
+   * Invalidates any cached values derived from the current version (this should be called after
+   * the configuration of the underlying logging system has changed).
+   */
+  public static synchronized void invalidate() {
+    VERSION.setTarget(newVersion());
+    // Ensures the new target is visible to other threads promptly.
+    MutableCallSite.syncAll(new MutableCallSite[] {VERSION});
+  }
+
+  private ConfigVersion() {}
+}
@@ -11,11 +11,12 @@
 package net.goui.flogger.backend.common;
 
 import static java.util.Arrays.stream;
+import static java.util.stream.Collectors.toUnmodifiableList;
 
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.stream.Stream;
 
 /**
@@ -64,14 +65,10 @@ public final class DefaultNamingStrategy implements NamingStrategy {
   private final int trimAtLeast;
   private final int retainAtMost;
 
-  /** Map of trailing wildcard counts for root entries with trailing ".*" sequences. */
-  private final Map<String, Integer> rootExtensions;
-
-  /** Sorted array of combined explicit and system roots (without trailing wildcards). */
-  private final String[] loggerRoots;
-
-  /** Array of coded hierarchy indices, aligned to match the sorted roots. */
-  private final int[] rootIndices;
+  /** Trie of name segments for combined explicit and system roots (without trailing wildcards). */
+  private final RootNode rootTrie = new RootNode();
+  /** Distinct names of the explicit and system roots in the trie (without trailing wildcards). */
+  private final List<String> rootNames;
 
   DefaultNamingStrategy(Options options) {
     this.trimAtLeast = unsignedInt(options, OPTION_TRIM_AT_LEAST);
@@ -81,12 +78,10 @@ public final class DefaultNamingStrategy implements NamingStrategy {
     // Can contain trailing ".*.*" style wildcards to denote how many child levels to keep.
     List<String> explicitRoots = options.getStringArray(OPTION_ROOTS);
     List<String> systemRoots = options.getStringArray(OPTION_SYSTEM_ROOTS);
-    this.rootExtensions = getRootExtensions(explicitRoots, systemRoots, defaultRootExtend);
+    Map<String, Integer> rootExtensions =
+        getRootExtensions(explicitRoots, systemRoots, defaultRootExtend);
 
-    // Create the sorted array of root entries. This ordering is vital to correct lookup since,
-    // for any given class name, the index of its parent entry cannot come after the insertion
-    // index of the class name.
-    this.loggerRoots =
+    this.rootNames =
         Stream.concat(
                 // Remove trailing '.*' wildcards for explicit roots.
                 explicitRoots.stream().map(this::removeAllWildcards),
@@ -95,10 +90,9 @@ public final class DefaultNamingStrategy implements NamingStrategy {
             .peek(DefaultNamingStrategy::checkValidRootName)
             // System roots and explicit roots can overlap (esp. after wildcard removal).
             .distinct()
-            .sorted(DefaultNamingStrategy::compareRootNames)
-            .toArray(String[]::new);
-    // Create the array of index and depth information associated with each root.
-    this.rootIndices = makeRootIndices(loggerRoots);
+            .collect(toUnmodifiableList());
+    rootNames.forEach(root -> rootTrie.add(root, rootExtensions.getOrDefault(root, 0)));
+    rootTrie.seal();
   }
 
   /** Helper to return an unsigned option value (possibly move into Options class later). */
@@ -175,6 +169,11 @@ public final class DefaultNamingStrategy implements NamingStrategy {
     return removeWildcards(root, countWildcards(root));
   }
 
+  @Override
+  public List<String> getRootNames() {
+    return rootNames;
+  }
+
   @Override
   public boolean shouldCacheBackends() {
     // Any logging class trimming is likely to greatly reduce the number of backends allocated, and
@@ -185,73 +184,35 @@ public final class DefaultNamingStrategy implements NamingStrategy {
 
   @Override
   public String getBackendName(String className) {
-    int rootIdx =
-        Arrays.binarySearch(
-            loggerRoots, 0, loggerRoots.length, className, DefaultNamingStrategy::compareRootNames);
-    if (rootIdx >= 0) {
-      // Found an exact match, return it.
-      return className;
-    }
-    // We didn't match the root, but might be below it, or we might be below one of its parents.
-    // To determine the correct parent, find the first point of difference between the class name
-    // and the root entry immediately before us.
-    int parentIdx = ~rootIdx - 1;
-    if (parentIdx >= 0) {
-      String parentCandidate = loggerRoots[parentIdx];
-      // Find the depth at or below which a candidate will be a parent.
-      int parentDepth = findMaxParentDepth(className, parentCandidate);
-      // If -1, the first segment differs, so no parent exists.
-      if (parentDepth >= 0) {
-        while (true) {
-          int codedIndex = rootIndices[parentIdx];
-          if ((codedIndex & 0xFFFF) <= parentDepth) {
-            // Return the first parent candidate with a depth <= the given name.
-            return possiblyExtendRoot(parentCandidate, className);
-          }
-          // If -1, we ran out of parent candidates to test.
-          parentIdx = codedIndex >> 16;
-          if (parentIdx < 0) {
-            break;
-          }
-          parentCandidate = loggerRoots[parentIdx];
-        }
+    // Scan the class name one segment at a time, remembering the deepest matching root. Roots
+    // only match whole segments, so "com.foo" is a parent of "com.foo.Bar", but not of
+    // "com.foobar.Baz" or "com.foo$Bar".
+    RootNode node = rootTrie;
+    RootNode match = node.root != null ? node : null;
+    int length = className.length();
+    for (int start = 0; start <= length; ) {
+      int end = className.indexOf('.', start);
+      if (end == -1) {
+        end = length;
       }
-    }
-    // No root matches, so return the (possibly truncated) name.
-    return truncateClassName(className, trimAtLeast, retainAtMost);
-  }
-
-  /**
-   * Returns the maximum depth for the parent entry in the list of roots.
-   *
-   * @return the maximum parent depth (matching the encoded values in parentIndices) or -1 if there
-   *     is no parent (i.e. a difference appears in the first segment).
-   */
-  private int findMaxParentDepth(String name, String parentCandidate) {
-    // We know the parentCandidate is not equal to the name (from calling code), and if it were a
-    // prefix of it, the candidate would appear after the class name in the sorted list of roots.
-    // So either:
-    // 1. The candidate is a parent of the name (a prefix ending at a '.').
-    // 2. The candidate has a difference at some earlier depth.
-    int depth = 0;
-    int length = Math.min(parentCandidate.length(), name.length());
-    for (int i = 0; i < length; i++) {
-      char chr = name.charAt(i);
-      if (chr != parentCandidate.charAt(i)) {
-        return depth;
+      node = node.getChild(className, start, end);
+      if (node == null) {
+        break;
       }
-      if (chr == '.') {
-        depth += 1;
+      if (node.root != null) {
+        match = node;
       }
+      start = end + 1;
     }
-    // All common characters match, so since the candidate sorts *before* the name, the
-    // name must be longer, but this doesn't mean the candidate is a parent.
-    assert name.length() > length : "name expected to be longer than candidate";
-    return name.charAt(length) == '.' ? depth + 1 : depth;
+    if (match != null) {
+      // This also handles exact matches, since extending a root by its own name is a no-op.
+      return possiblyExtendRoot(match.root, match.extendBy, className);
+    }
+    // No root matches, so return the (possibly truncated) name.
+    return truncateClassName(className, trimAtLeast, retainAtMost);
   }
 
-  private String possiblyExtendRoot(String root, String className) {
-    int extendBy = rootExtensions.getOrDefault(root, 0);
+  private static String possiblyExtendRoot(String root, int extendBy, String className) {
     if (extendBy == 0) {
       return root;
     }
@@ -304,43 +265,11 @@ public final class DefaultNamingStrategy implements NamingStrategy {
     return trimIdx;
   }
 
-  private static int compareRootNames(String lhs, String rhs) {
-    int length = Math.min(lhs.length(), rhs.length());
-    for (int i = 0; i < length; i++) {
-      // Note: While Java identifiers *can* be formed from surrogate pairs, we don't have to
-      // explicitly care about that here. The reason is that chars in a surrogate pair still
-      // have a valid ordering when compared char-at-a-time (because the hi-surrogate is first
-      // and orders the higher bits of the encoded code-point). The final order isn't identical
-      // to ordering the code points themselves, but it's consistent, and we don't care about
-      // the exact order used here, only that it works for the binary search.
-      char lc = lhs.charAt(i);
-      char rc = rhs.charAt(i);
-      if (lc == rc) {
-        continue;
-      }
-      if (lc == '.') {
-        // lc < rc
-        return -1;
-      }
-      if (rc == '.') {
-        // rc < lc
-        return 1;
-      }
-      // We can order unequal chars safely, including UTF-16 surrogate pair values.
-      return lc < rc ? -1 : 1;
-    }
-    // Exhausted at least one of the inputs, so either equal, or one input is a prefix to the other.
-    // Sort shorter inputs first.
-    return length < rhs.length() ? -1 : length < lhs.length() ? 1 : 0;
-  }
-
   private static void checkValidRootName(String pkg) {
     if (pkg.isEmpty()) {
       return;
     }
-    // Names are limited by class-file semantics to 65535 UTF-8 bytes, and this ensures that the
-    // eventual depth of a valid name is no more than 32768 (since dots must be separated by at
-    // least one character). Knowing that depth is limited is good later.
+    // Names are limited by class-file semantics to 65535 UTF-8 bytes.
     if (pkg.length() > 0xFFFF
         // Apologies for the truly ugly use of String#split(), Guava isn't an option here.
         || !stream(pkg.split("[.]", -1)).allMatch(DefaultNamingStrategy::isValidNamePart)) {
@@ -354,33 +283,85 @@ public final class DefaultNamingStrategy implements NamingStrategy {
         && part.codePoints().skip(1).allMatch(Character::isJavaIdentifierPart);
   }
 
-  private static int[] makeRootIndices(String[] roots) {
-    if (roots.length > 0xFFFF) {
-      throw new IllegalArgumentException("too many logger roots (no more than 65535 allowed)");
+  /**
+   * A node in the trie of logger roots, representing a (possibly empty) sequence of name segments.
+   * Nodes are mutable only while roots are being added, after which {@link #seal()} is called to
+   * convert child nodes into sorted arrays for fast, allocation free, lookup.
+   */
+  private static final class RootNode {
+    private static final String[] NO_SEGMENTS = new String[0];
+    private static final RootNode[] NO_CHILDREN = new RootNode[0];
+
+    // Non-null if this node represents a logger root (the root name is kept to avoid allocating).
+    private String root = null;
+    // The number of segments by which a matched class name is extended beyond the root.
+    private int extendBy = 0;
+
+    // Only non-null while roots are being added.
+    private TreeMap<String, RootNode> childMap = new TreeMap<>();
+    // Sorted child segments (in natural String order) and their nodes, aligned by index.
+    private String[] segments = NO_SEGMENTS;
+    private RootNode[] children = NO_CHILDREN;
+
+    /** Adds a (valid) root name to the trie below this node. */
+    void add(String root, int extendBy) {
+      RootNode node = this;
+      if (!root.isEmpty()) {
+        for (int start = 0; start <= root.length(); ) {
+          int end = root.indexOf('.', start);
+          if (end == -1) {
+            end = root.length();
+          }
+          node = node.childMap.computeIfAbsent(root.substring(start, end), s -> new RootNode());
+          start = end + 1;
+        }
+      }
+      node.root = root;
+      node.extendBy = extendBy;
     }
-    int[] indices = new int[roots.length];
-    for (int idx = 0; idx < roots.length; idx++) {
-      String pkg = roots[idx];
-      // Depth is limited to 2 bytes (see above) and we also limit parent indices.
-      int depth = pkg.isEmpty() ? 0 : numberOfDots(pkg) + 1;
-      // With index in high-bit, the value can be tested for "no parent" by just checking if -ve.
-      indices[idx] = (getParentIndex(pkg, idx, roots) << 16) | depth;
+
+    /** Converts the child nodes of this node (recursively) into arrays for lookup. */
+    void seal() {
+      if (!childMap.isEmpty()) {
+        segments = childMap.keySet().toArray(NO_SEGMENTS);
+        children = childMap.values().toArray(NO_CHILDREN);
+        for (RootNode child : children) {
+          child.seal();
+        }
+      }
+      childMap = null;
     }
-    return indices;
-  }
 
-  private static int numberOfDots(String pkg) {
-    return Math.toIntExact(pkg.chars().filter(c -> c == '.').count());
-  }
+    /** Returns the child node for the segment {@code name[start, end)}, or null if not present. */
+    RootNode getChild(String name, int start, int end) {
+      int lo = 0;
+      int hi = segments.length - 1;
+      while (lo <= hi) {
+        int mid = (lo + hi) >>> 1;
+        int cmp = compareSegment(segments[mid], name, start, end);
+        if (cmp < 0) {
+          lo = mid + 1;
+        } else if (cmp > 0) {
+          hi = mid - 1;
+        } else {
+          return children[mid];
+        }
+      }
+      return null;
+    }
 
-  private static int getParentIndex(String pkg, int idx, String[] roots) {
-    for (int j = idx - 1; j >= 0; j--) {
-      // parent can be "" if the global root was present (e.g. via "*.*")
-      String parent = roots[j];
-      if (parent.isEmpty() || (pkg.startsWith(parent) && pkg.charAt(parent.length()) == '.')) {
-        return j;
+    // Consistent with String#compareTo(), but without extracting the segment from the name.
+    private static int compareSegment(String segment, String name, int start, int end) {
+      int segmentLength = segment.length();
+      int length = Math.min(segmentLength, end - start);
+      for (int i = 0; i < length; i++) {
+        char sc = segment.charAt(i);
+        char nc = name.charAt(start + i);
+        if (sc != nc) {
+          return sc - nc;
+        }
       }
+      return segmentLength - (end - start);
     }
-    return -1;
   }
 }
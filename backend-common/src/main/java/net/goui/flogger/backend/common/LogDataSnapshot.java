@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.backend.common;
+
+import com.google.common.flogger.LogSite;
+import com.google.common.flogger.MetadataKey;
+import com.google.common.flogger.backend.LogData;
+import com.google.common.flogger.backend.LoggerBackend;
+import com.google.common.flogger.backend.Metadata;
+import com.google.common.flogger.backend.TemplateContext;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * An immutable copy of a log statement's {@link LogData}, suitable for passing to another thread
+ * for asynchronous logging.
+ *
+ * <p>A snapshot captures everything about a log statement which depends on the thread in which it
+ * was made. In particular, the metadata of a snapshot includes any scope metadata injected into the
+ * logging thread (which appears before the log-site metadata). This means that backends should not
+ * add the scope metadata of the thread in which they process a snapshot, but since this is expected
+ * to be empty for the thread which processes asynchronous log statements, that normally happens
+ * without any special handling.
+ *
+ * <p>Backends which record the identity of the thread which logged a statement (e.g. Log4j) should
+ * check for instances of this class and use {@link #getThreadName()} etc. instead of the current
+ * thread.
+ *
+ * <p>Note that log statement arguments are not copied, so mutable arguments which are modified
+ * after being logged may be formatted with their modified values.
+ */
+public final class LogDataSnapshot implements LogData {
+  private final Level level;
+  private final long timestampNanos;
+  private final String loggerName;
+  private final LogSite logSite;
+  private final Metadata metadata;
+  private final boolean wasForced;
+  private final TemplateContext templateContext;
+  private final Object[] arguments;
+  private final Object literalArgument;
+
+  private final String threadName;
+  private final long threadId;
+  private final int threadPriority;
+
+  // The backend to which this snapshot will be dispatched (only used by AsyncDispatcher).
+  final LoggerBackend target;
+
+  /**
+   * Creates a snapshot of the given log data, in the current thread.
+   *
+   * @param data the log data of the current log statement.
+   * @param scope scope metadata for the current log statement, obtained in the logging thread.
+   * @param target the backend to which the snapshot will be dispatched.
+   */
+  LogDataSnapshot(LogData data, Metadata scope, LoggerBackend target) {
+    this.level = data.getLevel();
+    this.timestampNanos = data.getTimestampNanos();
+    this.loggerName = data.getLoggerName();
+    this.logSite = data.getLogSite();
+    this.metadata = SnapshotMetadata.merge(scope, data.getMetadata());
+    this.wasForced = data.wasForced();
+    this.templateContext = data.getTemplateContext();
+    if (templateContext != null) {
+      this.arguments = data.getArguments().clone();
+      this.literalArgument = null;
+    } else {
+      this.arguments = null;
+      this.literalArgument = data.getLiteralArgument();
+    }
+    Thread currentThread = Thread.currentThread();
+    this.threadName = currentThread.getName();
+    // Switch to currentThread.threadId() after JDK 19+ is standard.
+    this.threadId = currentThread.getId();
+    this.threadPriority = currentThread.getPriority();
+    this.target = target;
+  }
+
+  @Override
+  public Level getLevel() {
+    return level;
+  }
+
+  @Deprecated
+  @Override
+  public long getTimestampMicros() {
+    return TimeUnit.NANOSECONDS.toMicros(timestampNanos);
+  }
+
+  @Override
+  public long getTimestampNanos() {
+    return timestampNanos;
+  }
+
+  @Override
+  public String getLoggerName() {
+    return loggerName;
+  }
+
+  @Override
+  public LogSite getLogSite() {
+    return logSite;
+  }
+
+  /** Returns the combined scope and log-site metadata of the original log statement. */
+  @Override
+  public Metadata getMetadata() {
+    return metadata;
+  }
+
+  @Override
+  public boolean wasForced() {
+    return wasForced;
+  }
+
+  @Override
+  public TemplateContext getTemplateContext() {
+    return templateContext;
+  }
+
+  @Override
+  public Object[] getArguments() {
+    if (templateContext == null) {
+      throw new IllegalStateException("cannot get arguments unless a template context exists");
+    }
+    return arguments;
+  }
+
+  @Override
+  public Object getLiteralArgument() {
+    if (templateContext != null) {
+      throw new IllegalStateException("cannot get literal argument if a template context exists");
+    }
+    return literalArgument;
+  }
+
+  /** Returns the name of the thread in which the original log statement was made. */
+  public String getThreadName() {
+    return threadName;
+  }
+
+  /** Returns the ID of the thread in which the original log statement was made. */
+  public long getThreadId() {
+    return threadId;
+  }
+
+  /** Returns the priority of the thread in which the original log statement was made. */
+  public int getThreadPriority() {
+    return threadPriority;
+  }
+
+  /** Immutable concatenation of scope and log-site metadata. */
+  private static final class SnapshotMetadata extends Metadata {
+    private final MetadataKey<?>[] keys;
+    private final Object[] values;
+
+    static Metadata merge(Metadata scope, Metadata logSite) {
+      int scopeSize = scope.size();
+      int size = scopeSize + logSite.size();
+      if (size == 0) {
+        return Metadata.empty();
+      }
+      MetadataKey<?>[] keys = new MetadataKey<?>[size];
+      Object[] values = new Object[size];
+      for (int n = 0; n < scopeSize; n++) {
+        keys[n] = scope.getKey(n);
+        values[n] = scope.getValue(n);
+      }
+      for (int n = scopeSize; n < size; n++) {
+        keys[n] = logSite.getKey(n - scopeSize);
+        values[n] = logSite.getValue(n - scopeSize);
+      }
+      return new SnapshotMetadata(keys, values);
+    }
+
+    private SnapshotMetadata(MetadataKey<?>[] keys, Object[] values) {
+      this.keys = keys;
+      this.values = values;
+    }
+
+    @Override
+    public int size() {
+      return keys.length;
+    }
+
+    @Override
+    public MetadataKey<?> getKey(int n) {
+      return keys[n];
+    }
+
+    @Override
+    public Object getValue(int n) {
+      return values[n];
+    }
+
+    @Override
+    public <T> T findValue(MetadataKey<T> key) {
+      // Search backwards so log-site values take precedence over scope values.
+      for (int n = keys.length - 1; n >= 0; n--) {
+        if (keys[n].equals(key)) {
+          return key.cast(values[n]);
+        }
+      }
+      return null;
+    }
+  }
+}
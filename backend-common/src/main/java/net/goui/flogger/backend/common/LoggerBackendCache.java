@@ -13,42 +13,158 @@ package net.goui.flogger.backend.common;
 import static java.util.Objects.requireNonNull;
 
 import com.google.common.flogger.backend.LoggerBackend;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
 
 /**
  * Weak referenced cache for logger backends, best used when the naming strategy maps many logging
  * class names to a single backend. This class is thread safe.
+ *
+ * <p>Entries for backends which have been garbage collected are removed via a reference queue, so
+ * the cache does not retain dead keys when many distinct backend names are created (e.g. for
+ * generated classes). The cache can also be bounded, in which case the least recently used entry is
+ * evicted when it is full. Evicting a backend which is still in use is harmless, but means a
+ * subsequent request for the same name will get a new backend instance.
+ *
+ * <p>Backends with "pinned" names are held strongly, are never evicted, and do not count towards
+ * the maximum size of the cache.
+ *
+ * <p>Since this cache is only used when loggers are created, and not when log statements are
+ * processed, it is not performance critical and a simple lock is used for the weak referenced
+ * entries.
  */
 final class LoggerBackendCache<T extends LoggerBackend> {
   private final Function<String, T> newBackendFn;
-  private final ConcurrentMap<String, WeakReference<T>> cache = new ConcurrentHashMap<>();
+  private final BackendMetrics metrics;
+  private final Set<String> pinnedNames;
+  private final ConcurrentHashMap<String, T> pinnedBackends = new ConcurrentHashMap<>();
+  private final ReferenceQueue<T> clearedReferences = new ReferenceQueue<>();
+  // Guarded by itself. Entries are in access order, so the eldest entry is the least recently used.
+  private final LinkedHashMap<String, NamedReference<T>> cache;
 
   LoggerBackendCache(Function<String, T> newBackendFn) {
+    this(newBackendFn, 0, Set.of(), new BackendMetrics());
+  }
+
+  /**
+   * @param newBackendFn function to create new backend instances.
+   * @param maxSize the maximum number of weak referenced backends to cache (zero for unbounded).
+   * @param pinnedNames backend names for which backends should be held strongly.
+   * @param metrics metrics to record cache hits, misses, evictions, cleared references and
+   *     discarded backends in.
+   */
+  LoggerBackendCache(
+      Function<String, T> newBackendFn,
+      int maxSize,
+      Set<String> pinnedNames,
+      BackendMetrics metrics) {
+    if (maxSize < 0) {
+      throw new IllegalArgumentException("maximum cache size must not be negative: " + maxSize);
+    }
     this.newBackendFn = requireNonNull(newBackendFn);
+    this.metrics = requireNonNull(metrics);
+    this.pinnedNames = Set.copyOf(pinnedNames);
+    this.cache =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, NamedReference<T>> eldest) {
+            if (maxSize > 0 && size() > maxSize) {
+              metrics.recordCacheEviction();
+              return true;
+            }
+            return false;
+          }
+        };
   }
 
   /** Returns a cached backend instance for the given name. */
   T getBackend(String backendName) {
-    WeakReference<T> ref = cache.get(backendName);
-    if (ref != null) {
-      T cachedBackend = ref.get();
+    if (pinnedNames.contains(backendName)) {
+      return getPinnedBackend(backendName);
+    }
+    synchronized (cache) {
+      expungeClearedReferences();
+      T cachedBackend = getCachedBackend(backendName);
       if (cachedBackend != null) {
+        metrics.recordCacheHit();
         return cachedBackend;
       }
-      // Hanging, empty reference that needs replacing. Since the set of backends is likely small
-      // (or at least bounded) and class unloading is rare, it's not necessary to worry about
-      // proactively finding cleared references and tidying them up with a reference queue.
     }
+    metrics.recordCacheMiss();
+    // Don't hold the lock while creating the backend, since this may call into the underlying
+    // logging system (which could, in theory, cause reentrant logger creation).
     T newBackend = newBackendFn.apply(backendName);
-    // Minor race condition means we might end up with non-unique backend classes, but this is both
-    // very unlikely and harmless. We must avoid creating the new backing inside computeIfAbsent()
-    // since there's still the race condition of it being cleared before returning. If we wanted
-    // to avoid any race conditions here, we'd need a loop of some kind to ensure the added entry
-    // wasn't cleared before being returned.
-    cache.putIfAbsent(backendName, new WeakReference<>(newBackend));
+    synchronized (cache) {
+      // Another thread may have added a backend while ours was being created.
+      T cachedBackend = getCachedBackend(backendName);
+      if (cachedBackend != null) {
+        metrics.recordDiscardedBackend();
+        return cachedBackend;
+      }
+      // Any existing entry here holds a cleared reference which was not yet expunged.
+      if (cache.put(backendName, new NamedReference<>(backendName, newBackend, clearedReferences))
+          == null) {
+        metrics.recordCacheEntryAdded();
+      }
+    }
     return newBackend;
   }
+
+  private T getPinnedBackend(String backendName) {
+    T pinnedBackend = pinnedBackends.get(backendName);
+    if (pinnedBackend != null) {
+      metrics.recordCacheHit();
+    } else {
+      metrics.recordCacheMiss();
+      // As above, avoid creating backends inside computeIfAbsent(), which cannot be reentrant.
+      T newBackend = newBackendFn.apply(backendName);
+      pinnedBackend = pinnedBackends.putIfAbsent(backendName, newBackend);
+      if (pinnedBackend == null) {
+        metrics.recordCacheEntryAdded();
+        pinnedBackend = newBackend;
+      } else {
+        metrics.recordDiscardedBackend();
+      }
+    }
+    return pinnedBackend;
+  }
+
+  // Must be called with the lock held.
+  private T getCachedBackend(String backendName) {
+    NamedReference<T> ref = cache.get(backendName);
+    return ref != null ? ref.get() : null;
+  }
+
+  // Must be called with the lock held.
+  private void expungeClearedReferences() {
+    for (Reference<? extends T> ref; (ref = clearedReferences.poll()) != null; ) {
+      NamedReference<?> namedRef = (NamedReference<?>) ref;
+      // Only remove the entry if it was not already replaced or evicted.
+      metrics.recordClearedReference(cache.remove(namedRef.name, namedRef));
+    }
+  }
+
+  /** Returns the number of weak referenced entries in the cache (for testing). */
+  int size() {
+    synchronized (cache) {
+      expungeClearedReferences();
+      return cache.size();
+    }
+  }
+
+  /** A weak reference which knows its cache key, so it can be removed once cleared. */
+  private static final class NamedReference<T> extends WeakReference<T> {
+    private final String name;
+
+    NamedReference(String name, T referent, ReferenceQueue<? super T> queue) {
+      super(referent, queue);
+      this.name = name;
+    }
+  }
 }
@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.backend.common;
+
+import com.google.common.flogger.LogSite;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * Reusable, per-thread buffers for formatting log messages.
+ *
+ * <p>Formatting a log message into a new {@link StringBuilder} means the buffer is resized several
+ * times for long messages, and then discarded. Instead, each thread has a single reusable buffer,
+ * which is used unless it is already in use further up the stack (e.g. if formatting a message
+ * causes reentrant logging). Buffers which grow beyond a maximum capacity are discarded after use,
+ * to avoid retaining memory in every logging thread after a single long message.
+ *
+ * <p>Since buffers are shared by all backends, the maximum capacity is a process-wide setting,
+ * read once from the {@code flogger.message_buffer.max_capacity} system property (default 8192,
+ * where zero disables buffer reuse).
+ *
+ * <p>A running estimate of formatted message length is also kept for each log site. This is used
+ * to size new buffers when the per-thread buffer cannot be reused (or has been discarded), so that
+ * buffers are grown at most once for a typical message.
+ *
+ * <p>Buffers must be released after use (e.g. in a {@code finally} block):
+ *
+ * <pre>{@code
+ * StringBuilder buffer = MessageBuffers.acquire(logSite);
+ * try {
+ *   return formatter.append(logData, metadata, buffer).toString();
+ * } finally {
+ *   MessageBuffers.release(logSite, buffer);
+ * }
+ * }</pre>
+ */
+public final class MessageBuffers {
+  // Capacity of new buffers if no estimate exists.
+  private static final int DEFAULT_CAPACITY = 256;
+  // Enough for most formatted log messages, without retaining too much memory per thread.
+  static final int DEFAULT_MAX_CAPACITY = 8192;
+  // Bigger than the number of distinct log statements in most applications, but small enough to
+  // avoid memory issues. Once full, messages for untracked log sites use the default capacity.
+  private static final int MAX_ESTIMATES = 4096;
+
+  private static final ThreadLocal<ThreadBuffer> threadBuffers =
+      ThreadLocal.withInitial(ThreadBuffer::new);
+  // Log sites are compared by equality since some log sites (e.g. those determined from the stack)
+  // are new instances for each log statement.
+  private static final ConcurrentHashMap<LogSite, LengthEstimate> estimates =
+      new ConcurrentHashMap<>();
+
+  private static final int MAX_CAPACITY = readMaxCapacity(System::getProperty);
+
+  /**
+   * Returns the maximum capacity of buffers retained for reuse (zero disables reuse) from the given
+   * system properties, or the default if it is not set (or not valid).
+   */
+  static int readMaxCapacity(UnaryOperator<String> properties) {
+    long capacity;
+    try {
+      capacity =
+          Options.of(properties)
+              .getOptions("flogger.message_buffer")
+              .getLong("max_capacity", DEFAULT_MAX_CAPACITY);
+    } catch (OptionParseException e) {
+      capacity = -1;
+    }
+    if (capacity < 0 || capacity > Integer.MAX_VALUE) {
+      // A bad value should not prevent logging (this is called during class initialization). This
+      // is reported to System.err, since logging it would recurse.
+      System.err.println(
+          "Invalid Flogger message buffer capacity (using "
+              + DEFAULT_MAX_CAPACITY
+              + "): "
+              + properties.apply("flogger.message_buffer.max_capacity"));
+      return DEFAULT_MAX_CAPACITY;
+    }
+    return (int) capacity;
+  }
+
+  /**
+   * Returns an empty buffer for formatting a log message from the given log site. The returned
+   * buffer must be passed to {@link #release(LogSite, StringBuilder)} after use, and must not be
+   * used afterwards.
+   *
+   * @param logSite the log site of the message being formatted, or {@link LogSite#INVALID} if the
+   *     buffer is not used for a complete log message (in which case no estimate is used).
+   */
+  public static StringBuilder acquire(LogSite logSite) {
+    int estimate = getEstimate(logSite);
+    ThreadBuffer threadBuffer = threadBuffers.get();
+    if (threadBuffer.inUse) {
+      return new StringBuilder(estimate);
+    }
+    threadBuffer.inUse = true;
+    StringBuilder buffer = threadBuffer.buffer;
+    if (buffer == null) {
+      buffer = new StringBuilder(estimate);
+      threadBuffer.buffer = buffer;
+    } else {
+      buffer.ensureCapacity(estimate);
+    }
+    return buffer;
+  }
+
+  /**
+   * Releases a buffer obtained via {@link #acquire(LogSite)} for the same log site, updating the
+   * estimated message length for the log site from the current length of the buffer.
+   */
+  public static void release(LogSite logSite, StringBuilder buffer) {
+    if (logSite != LogSite.INVALID) {
+      updateEstimate(logSite, buffer.length());
+    }
+    ThreadBuffer threadBuffer = threadBuffers.get();
+    if (buffer == threadBuffer.buffer) {
+      if (buffer.capacity() > MAX_CAPACITY) {
+        threadBuffer.buffer = null;
+      } else {
+        buffer.setLength(0);
+      }
+      threadBuffer.inUse = false;
+    }
+  }
+
+  private static int getEstimate(LogSite logSite) {
+    LengthEstimate estimate = logSite != LogSite.INVALID ? estimates.get(logSite) : null;
+    // Round up a bit, since messages from the same log site vary in length.
+    return estimate != null ? estimate.length + (estimate.length >> 3) : DEFAULT_CAPACITY;
+  }
+
+  private static void updateEstimate(LogSite logSite, int length) {
+    LengthEstimate estimate = estimates.get(logSite);
+    if (estimate != null) {
+      estimate.update(length);
+    } else if (estimates.size() < MAX_ESTIMATES) {
+      estimates.putIfAbsent(logSite, new LengthEstimate(length));
+    }
+  }
+
+  /** Returns the current length estimate for the given log site (for testing). */
+  static int getEstimatedLength(LogSite logSite) {
+    LengthEstimate estimate = estimates.get(logSite);
+    return estimate != null ? estimate.length : -1;
+  }
+
+  private static final class ThreadBuffer {
+    // Null if the last buffer was discarded, or has not been created yet.
+    private StringBuilder buffer = null;
+    private boolean inUse = false;
+  }
+
+  /**
+   * Running estimate of message length for a log site. This increases immediately for longer
+   * messages, but decays slowly for shorter ones, to avoid regularly undersizing buffers.
+   */
+  private static final class LengthEstimate {
+    // Racing threads may lose updates, but this is only an estimate.
+    private volatile int length;
+
+    LengthEstimate(int length) {
+      this.length = length;
+    }
+
+    void update(int newLength) {
+      int current = length;
+      if (newLength > current) {
+        length = newLength;
+      } else if (newLength < current) {
+        // Rounds up so the estimate always converges on the new length.
+        length = current - ((current - newLength + 7) >> 3);
+      }
+    }
+  }
+
+  private MessageBuffers() {}
+}
@@ -12,6 +12,7 @@ package net.goui.flogger.backend.common;
 
 import static net.goui.flogger.backend.common.PluginLoader.DEFAULT_PLUGIN_NAME;
 
+import java.util.List;
 import java.util.Map;
 
 /** A Flogger backend plugin for controlling how logging class names are mapped to backend names. */
@@ -70,4 +71,16 @@ public interface NamingStrategy {
    * classes to a few backends, caching will reduce repeated allocations for the same backend name.
    */
   boolean shouldCacheBackends();
+
+  /**
+   * Returns the names of any logger roots known to this strategy, which are likely to be used for
+   * many logging classes. Backends for these names may be created in advance (see the
+   * "flogger.prewarm.enabled" option), so the first log statements from each root are not delayed
+   * by backend initialization.
+   *
+   * <p>The default implementation returns an empty list.
+   */
+  default List<String> getRootNames() {
+    return List.of();
+  }
 }
@@ -20,6 +20,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.UnaryOperator;
@@ -33,11 +34,13 @@ import java.util.stream.Collectors;
  * when configuring a Flogger backend module.
  *
  * <p>This class should be used only during module factory initialization and should not need to be
- * performant.
+ * performant. However, where many options are read (e.g. by several plugins, or for each backend
+ * created), a {@link #snapshot()} can be used to avoid repeatedly reading and resolving the same
+ * values.
  */
 public final class Options {
   public static Options of(UnaryOperator<String> lookupFn) {
-    return new Options(lookupFn, "");
+    return new Options(lookupFn, "", null);
   }
 
   /**
@@ -59,10 +62,35 @@ public final class Options {
   private final UnaryOperator<String> getFn;
   // By construction this is either empty or ends with '.' (e.g. "foo.bar.").
   private final String prefix;
+  // Null unless this is a snapshot, in which case it is shared with all derived options. Maps fully
+  // qualified names to resolved values (or MISSING).
+  private final ConcurrentHashMap<String, Resolved> resolvedValues;
 
-  private Options(UnaryOperator<String> getFn, String prefix) {
+  private Options(
+      UnaryOperator<String> getFn, String prefix, ConcurrentHashMap<String, Resolved> resolved) {
     this.prefix = requireNonNull(prefix);
     this.getFn = requireNonNull(getFn);
+    this.resolvedValues = resolved;
+  }
+
+  /**
+   * Returns a snapshot of these options, in which each underlying value is read at most once, and
+   * resolved values (including aliases and array sizes) are cached. Options derived from the
+   * snapshot (e.g. via {@link #getOptions(String)}) share the same cached values.
+   *
+   * <p>A snapshot will not reflect subsequent changes to the underlying values, so it should only
+   * be used where options are not expected to change (e.g. after the underlying logging system has
+   * been configured).
+   */
+  public Options snapshot() {
+    if (resolvedValues != null) {
+      return this;
+    }
+    ConcurrentHashMap<String, Optional<String>> rawValues = new ConcurrentHashMap<>();
+    // Missing values are cached too, and are common (e.g. when resolving aliases).
+    UnaryOperator<String> cachingGetFn =
+        fqn -> rawValues.computeIfAbsent(fqn, this::getOptionalRaw).orElse(null);
+    return new Options(cachingGetFn, prefix, new ConcurrentHashMap<>());
   }
 
   /**
@@ -97,11 +125,12 @@ public final class Options {
    * @param name the name of the child options, without a trailing '.' (e.g. "foo" or "foo.bar").
    */
   public Options getOptions(String name) {
-    return new Options(getFn, prefix + checkName(name) + ".");
+    return new Options(getFn, prefix + checkName(name) + ".", resolvedValues);
   }
 
   public List<Options> getOptionsArray(String name) {
-    return collectArrayElements(name, (fqn, i) -> new Options(getFn, fqn + "." + i + "."));
+    return collectArrayElements(
+        name, (fqn, i) -> new Options(getFn, fqn + "." + i + ".", resolvedValues));
   }
 
   /** Returns the raw string value of the given option (including handling aliases). */
@@ -253,31 +282,45 @@ public final class Options {
     return getFn.apply(fqn);
   }
 
+  private Optional<String> getOptionalRaw(String fqn) {
+    return Optional.ofNullable(getRaw(fqn));
+  }
+
   // Resolves the location of the first non-null value (including aliasing) for the given name, and
   // invokes the given function passing the fully qualified name and value. This function detects
   // infinite recursion in due to aliases.
   private <T> Optional<T> resolve(String name, BiFunction<String, String, T> op) {
-    Set<String> seen = new LinkedHashSet<>();
-    return Optional.ofNullable(resolveRecursively(fqn(checkName(name)), op, seen));
+    String fqn = fqn(checkName(name));
+    Resolved resolved =
+        resolvedValues != null
+            ? resolvedValues.computeIfAbsent(fqn, this::resolveUncached)
+            : resolveUncached(fqn);
+    return resolved != MISSING
+        ? Optional.ofNullable(op.apply(resolved.fqn, resolved.value))
+        : Optional.empty();
   }
 
-  private <T> T resolveRecursively(
-      String fqn, BiFunction<String, String, T> op, Set<String> aliases) {
+  private Resolved resolveUncached(String fqn) {
+    Resolved resolved = resolveRecursively(fqn, new LinkedHashSet<>());
+    return resolved != null ? resolved : MISSING;
+  }
+
+  private Resolved resolveRecursively(String fqn, Set<String> aliases) {
     checkNoRecursion(fqn, aliases);
     String v = getRaw(fqn);
     if (v != null) {
       if (!v.startsWith("@")) {
         // Normal value with no leading '@' (e.g. "foo").
-        return op.apply(fqn, v);
+        return new Resolved(fqn, v);
       }
       // Remove leading '@': Either get alias, or real value starting with '@'.
       String valueOrAlias = v.substring(1);
       if (valueOrAlias.startsWith("@")) {
         // Value with escaped leading '@' (e.g. "@@foo" -> "@foo").
-        return op.apply(fqn, valueOrAlias);
+        return new Resolved(fqn, valueOrAlias);
       }
       // Resolve an aliased value directly (only one alias is currently allowed here).
-      return resolveRecursively(checkName(valueOrAlias), op, aliases);
+      return resolveRecursively(checkName(valueOrAlias), aliases);
     }
     // Handle aliases at each level of the fully qualified name, starting with the deepest.
     int lastDot = fqn.lastIndexOf('.');
@@ -295,7 +338,7 @@ public final class Options {
           }
           // Resolve an aliased group recursively (adding any trailing ".bar" suffix related to the
           // current position in the current fully qualified name).
-          T result = resolveRecursively(alias.substring(1) + childSuffix, op, aliases);
+          Resolved result = resolveRecursively(alias.substring(1) + childSuffix, aliases);
           if (result != null) {
             return result;
           }
@@ -314,6 +357,19 @@ public final class Options {
     }
   }
 
+  /** The fully qualified name and raw value of a resolved option. */
+  private static final class Resolved {
+    private final String fqn;
+    private final String value;
+
+    Resolved(String fqn, String value) {
+      this.fqn = fqn;
+      this.value = value;
+    }
+  }
+
+  private static final Resolved MISSING = new Resolved(null, null);
+
   private <T> List<T> getArray(String name, BiFunction<String, String, T> fn) {
     return collectArrayElements(name, (fqn, i) -> getElement(fqn, i, fn));
   }
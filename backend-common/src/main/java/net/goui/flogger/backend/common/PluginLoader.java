@@ -10,17 +10,65 @@
 
 package net.goui.flogger.backend.common;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
-/** Helper class to load and configure Flogger plugins via {@link Options}. */
+/**
+ * Helper class to load and configure Flogger plugins via {@link Options}.
+ *
+ * <p>Plugins are selected via the "impl" option, which is either the name of a built-in plugin, the
+ * name of a plugin supplied by a {@link PluginProvider} service, or the fully qualified name of a
+ * plugin class (which is instantiated reflectively).
+ */
 public final class PluginLoader {
   public static final String DEFAULT_PLUGIN_NAME = "default";
 
+  private static final MethodType PLUGIN_CONSTRUCTOR =
+      MethodType.methodType(void.class, Options.class);
+
+  // Plugin providers, keyed by plugin type and name (loaded on first use).
+  private static volatile Map<Map.Entry<Class<?>, String>, List<PluginProvider<?>>> providers =
+      null;
+
+  // Plugin classes, keyed by implementation name. Classes are always resolved via the class loader
+  // of this class, so each name maps to a single class, and holding classes strongly does not
+  // extend their lifetime (they are defined by this class's loader, or one of its parents).
+  private static final ConcurrentHashMap<String, Class<?>> classes = new ConcurrentHashMap<>();
+
+  // Plugin class constructors. Plugins are instantiated several times during initialization (e.g.
+  // for nested formatter plugins) and again if logging is reconfigured. A ClassValue is used so
+  // cached constructors never prevent plugin classes (or their class loaders) being unloaded.
+  private static final ClassValue<MethodHandle> constructors =
+      new ClassValue<>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> clazz) {
+          try {
+            return MethodHandles.lookup().findConstructor(clazz, PLUGIN_CONSTRUCTOR);
+          } catch (ReflectiveOperationException e) {
+            throw new FloggerPluginException(
+                "Flogger plugin classes must have a public constructor: <init>("
+                    + Options.class.getSimpleName()
+                    + "): "
+                    + clazz.getName(),
+                e);
+          }
+        }
+      };
+
   /**
-   * Loads and instantiates a Flogger plugin via the given options. The specified target class is
-   * required to have a public constructor which takes a single {@link Options} argument.
+   * Loads and instantiates a Flogger plugin via the given options. Plugins not provided by a
+   * {@link PluginProvider} are required to have a public constructor which takes a single {@link
+   * Options} argument.
    *
    * @param targetClass the plugin API to be implemented.
    * @param options options passed to the plugin class's constructor.
@@ -35,28 +83,89 @@ public final class PluginLoader {
     if (implInit != null) {
       return implInit.apply(options);
     }
+    PluginProvider<?> provider = findProvider(targetClass, implName);
+    if (provider != null) {
+      return targetClass.cast(provider.create(options));
+    }
+    MethodHandle constructor = getConstructor(targetClass, implName);
     try {
-      Class<?> clazz = Class.forName(implName);
-      if (!targetClass.isAssignableFrom(clazz)) {
-        throw new FloggerPluginException(
-            "Class '"
-                + implName
-                + "' does not implement expected plugin type: "
-                + targetClass.getName());
-      }
-      return targetClass.cast(clazz.getDeclaredConstructor(Options.class).newInstance(options));
-    } catch (ClassNotFoundException e) {
-      throw new FloggerPluginException("No class found for Flogger plugin: " + implName, e);
-    } catch (InvocationTargetException e) {
+      return targetClass.cast(constructor.invoke(options));
+    } catch (Error e) {
+      throw e;
+    } catch (Throwable e) {
       throw new FloggerPluginException("Exception initializing Flogger plugin: " + implName, e);
-    } catch (ReflectiveOperationException e) {
+    }
+  }
+
+  private static PluginProvider<?> findProvider(Class<?> targetClass, String name) {
+    List<PluginProvider<?>> matching = getProviders().get(Map.entry(targetClass, name));
+    if (matching == null) {
+      return null;
+    }
+    if (matching.size() > 1) {
+      String providerNames =
+          matching.stream().map(p -> p.getClass().getName()).collect(Collectors.joining(", "));
       throw new FloggerPluginException(
-          "Flogger plugin classes must have a public constructor: <init>("
-              + Options.class.getSimpleName()
+          "Multiple Flogger plugin providers for '"
+              + name
+              + "' ("
+              + targetClass.getName()
               + "): "
-              + implName,
-          e);
+              + providerNames);
+    }
+    return matching.get(0);
+  }
+
+  private static Map<Map.Entry<Class<?>, String>, List<PluginProvider<?>>> getProviders() {
+    Map<Map.Entry<Class<?>, String>, List<PluginProvider<?>>> map = providers;
+    if (map == null) {
+      map = loadProviders();
+      // Racing threads may both load providers, but either value is valid.
+      providers = map;
+    }
+    return map;
+  }
+
+  private static Map<Map.Entry<Class<?>, String>, List<PluginProvider<?>>> loadProviders() {
+    Map<Map.Entry<Class<?>, String>, List<PluginProvider<?>>> map = new HashMap<>();
+    try {
+      for (PluginProvider<?> provider :
+          ServiceLoader.load(PluginProvider.class, PluginLoader.class.getClassLoader())) {
+        map.computeIfAbsent(
+                Map.entry(provider.getPluginType(), provider.getName()), k -> new ArrayList<>())
+            .add(provider);
+      }
+    } catch (ServiceConfigurationError e) {
+      throw new FloggerPluginException("Cannot load Flogger plugin providers", e);
+    }
+    return map;
+  }
+
+  private static MethodHandle getConstructor(Class<?> targetClass, String implName) {
+    MethodHandle constructor = constructors.get(loadClass(implName));
+    // The return type of a constructor handle is the class being constructed.
+    if (!targetClass.isAssignableFrom(constructor.type().returnType())) {
+      throw new FloggerPluginException(
+          "Class '"
+              + implName
+              + "' does not implement expected plugin type: "
+              + targetClass.getName());
+    }
+    return constructor;
+  }
+
+  private static Class<?> loadClass(String implName) {
+    Class<?> clazz = classes.get(implName);
+    if (clazz == null) {
+      try {
+        clazz = Class.forName(implName);
+      } catch (ClassNotFoundException e) {
+        throw new FloggerPluginException("No class found for Flogger plugin: " + implName, e);
+      }
+      // Racing threads may both load the class, but will get the same instance.
+      classes.putIfAbsent(implName, clazz);
     }
+    return clazz;
   }
 
   public static final class FloggerPluginException extends RuntimeException {
@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.backend.common;
+
+/**
+ * Service API for providing Flogger plugins by name, without reflection.
+ *
+ * <p>Implementations are loaded via {@link java.util.ServiceLoader} (i.e. listed in {@code
+ * META-INF/services/net.goui.flogger.backend.common.PluginProvider}) and are selected by setting
+ * the {@code impl} option of a plugin to the provider's name. For example, a provider of {@code
+ * LogMessageFormatter} plugins with the name "my_format" is selected via {@code
+ * flogger.message_formatter.impl=my_format}.
+ *
+ * <p>Plugins can still be selected by class name (if they have a public constructor taking a
+ * single {@link Options} argument), but this requires reflection, which may be costly or
+ * unavailable in some environments.
+ *
+ * @param <T> the plugin API implemented by the provided plugins.
+ */
+public interface PluginProvider<T> {
+  /** Returns the plugin API implemented by the provided plugins (e.g. {@code NamingStrategy}). */
+  Class<T> getPluginType();
+
+  /**
+   * Returns the short name by which the provided plugins are selected. Names must be unique for
+   * each plugin type, and should not be fully qualified class names.
+   */
+  String getName();
+
+  /** Returns a new plugin instance configured by the given options. */
+  T create(Options options);
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.backend.common;
+
+import com.google.common.flogger.LogSite;
+import com.google.common.flogger.backend.LogData;
+import com.google.common.flogger.backend.Metadata;
+import com.google.common.flogger.backend.TemplateContext;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Synthetic log data, formatted (but never logged) when backends are pre-warmed, so the first real
+ * log statement does not pay for class loading and initialization of the message formatter.
+ */
+final class PrewarmLogData implements LogData {
+  private final String loggerName;
+  private final long timestampNanos = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+
+  PrewarmLogData(String loggerName) {
+    this.loggerName = loggerName;
+  }
+
+  @Override
+  public Level getLevel() {
+    return Level.INFO;
+  }
+
+  @Deprecated
+  @Override
+  public long getTimestampMicros() {
+    return TimeUnit.NANOSECONDS.toMicros(timestampNanos);
+  }
+
+  @Override
+  public long getTimestampNanos() {
+    return timestampNanos;
+  }
+
+  @Override
+  public String getLoggerName() {
+    return loggerName;
+  }
+
+  // An invalid log site is not tracked by log site based caches (e.g. for message buffer sizes),
+  // so this synthetic log statement does not occupy space intended for real log sites.
+  @Override
+  public LogSite getLogSite() {
+    return LogSite.INVALID;
+  }
+
+  @Override
+  public Metadata getMetadata() {
+    return Metadata.empty();
+  }
+
+  @Override
+  public boolean wasForced() {
+    return false;
+  }
+
+  @Override
+  public TemplateContext getTemplateContext() {
+    return null;
+  }
+
+  @Override
+  public Object[] getArguments() {
+    throw new IllegalStateException("cannot get arguments unless a template context exists");
+  }
+
+  @Override
+  public Object getLiteralArgument() {
+    return "Flogger backend pre-warming";
+  }
+}
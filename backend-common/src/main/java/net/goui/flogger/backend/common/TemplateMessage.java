@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.backend.common;
+
+import com.google.common.flogger.backend.BaseMessageFormatter;
+import com.google.common.flogger.backend.LogData;
+import com.google.common.flogger.backend.MessageUtils;
+import com.google.common.flogger.backend.TemplateContext;
+import java.util.List;
+
+/**
+ * A structured log message made up of literal fragments and resolved values (e.g. from a String
+ * Template log statement in the Flogger Next logger API).
+ *
+ * <p>Template messages are passed to backends as the single argument of a {@code "%s"} formatted
+ * log statement, which means that backends unaware of this API will still format them correctly
+ * (via {@link #toString()}). Backends and formatters which recognize template messages (via {@link
+ * #from(LogData)}) can instead append them directly into an output buffer without creating an
+ * intermediate {@code String}, and can access the log statement values as structured data.
+ *
+ * <p>Template messages are immutable and safe to pass between threads, but (as for any logged
+ * values) the values they contain may not be.
+ */
+public interface TemplateMessage {
+  /**
+   * Returns the literal fragments of this template (one more than the number of values). Fragments
+   * may contain {@link java.util.Formatter Formatter} style format specifiers for the values which
+   * follow them.
+   */
+  List<String> getFragments();
+
+  /** Returns the values of this template, in order, with any lazy values resolved. */
+  List<Object> getValues();
+
+  /** Appends the formatted message to the given buffer. */
+  void appendTo(StringBuilder buffer);
+
+  /**
+   * Appends the formatted message to the given buffer, but may stop appending once more than {@code
+   * maxLength} characters have been appended. This allows callers which truncate long messages to
+   * avoid formatting them in full, but the caller is still responsible for truncating the appended
+   * text. The default implementation appends the complete message.
+   */
+  default void appendTo(StringBuilder buffer, int maxLength) {
+    appendTo(buffer);
+  }
+
+  /** Returns the formatted message. */
+  @Override
+  String toString();
+
+  /**
+   * Returns the template message in the given log data, or {@code null} if the log statement was
+   * not created with a template message.
+   */
+  static TemplateMessage from(LogData logData) {
+    TemplateContext context = logData.getTemplateContext();
+    if (context != null && context.getMessage().equals("%s")) {
+      Object[] args = logData.getArguments();
+      if (args.length == 1 && args[0] instanceof TemplateMessage) {
+        return (TemplateMessage) args[0];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Appends the formatted log message in the given log data to a buffer, avoiding the creation of
+   * intermediate strings for template messages.
+   */
+  static StringBuilder appendFormattedMessage(LogData logData, StringBuilder buffer) {
+    TemplateMessage template = from(logData);
+    if (template != null) {
+      template.appendTo(buffer);
+      return buffer;
+    }
+    return BaseMessageFormatter.appendFormattedMessage(logData, buffer);
+  }
+
+  /**
+   * Appends the formatted log message in the given log data to a buffer, as for {@link
+   * #appendFormattedMessage(LogData, StringBuilder)}, but may stop appending once more than {@code
+   * maxLength} characters have been appended (the caller is responsible for truncating the appended
+   * text). Template and literal messages are not appended beyond this limit, and the arguments of
+   * printf style messages are not formatted once the limit has been exceeded.
+   */
+  static StringBuilder appendFormattedMessage(LogData logData, StringBuilder buffer, int maxLength) {
+    TemplateMessage template = from(logData);
+    if (template != null) {
+      template.appendTo(buffer, maxLength);
+      return buffer;
+    }
+    if (logData.getTemplateContext() == null) {
+      String literal = MessageUtils.safeToString(logData.getLiteralArgument());
+      return buffer.append(literal, 0, Math.min(literal.length() - 1, maxLength) + 1);
+    }
+    return BoundedMessageFormatter.appendFormattedMessage(logData, buffer, maxLength);
+  }
+}
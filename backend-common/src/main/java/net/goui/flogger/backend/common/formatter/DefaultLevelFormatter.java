@@ -13,6 +13,7 @@ package net.goui.flogger.backend.common.formatter;
 import com.google.common.flogger.backend.LogData;
 import com.google.common.flogger.backend.LogMessageFormatter;
 import com.google.common.flogger.backend.MetadataProcessor;
+import java.util.Locale;
 import java.util.logging.Level;
 import net.goui.flogger.backend.common.Options;
 
@@ -25,9 +26,27 @@ import net.goui.flogger.backend.common.Options;
  *   <li>{@code flogger.message_formatter.level.use_localized_name}: Boolean<br>
  *       Formats the log level using its localized name according to the current locale.
  * </ul>
+ *
+ * <p>Formatted names of the standard log levels are cached (and re-formatted if the default locale
+ * changes), but custom log levels are formatted on each use.
  */
 final class DefaultLevelFormatter extends LogMessageFormatter {
+  private static final Level[] STANDARD_LEVELS = {
+    Level.SEVERE,
+    Level.WARNING,
+    Level.INFO,
+    Level.CONFIG,
+    Level.FINE,
+    Level.FINER,
+    Level.FINEST,
+    Level.ALL,
+    Level.OFF,
+  };
+
   private final boolean useLocalizedName;
+  // Formatted names, indexed as STANDARD_LEVELS. Racing threads may both update an entry, but
+  // either value is valid.
+  private final FormattedLevel[] cache = new FormattedLevel[STANDARD_LEVELS.length];
 
   DefaultLevelFormatter(Options options) {
     this.useLocalizedName = options.getBoolean("use_localized_name", false);
@@ -36,7 +55,48 @@ final class DefaultLevelFormatter extends LogMessageFormatter {
   @Override
   public StringBuilder append(LogData logData, MetadataProcessor metadata, StringBuilder buffer) {
     Level level = logData.getLevel();
-    buffer.append(useLocalizedName ? level.getLocalizedName() : level.getName());
-    return buffer;
+    FormattedLevel formatted = getFormattedLevel(level);
+    return buffer.append(formatted != null ? formatted.name : format(level));
+  }
+
+  /** Returns the cached formatted name for the given level, or null if it is not cached. */
+  private FormattedLevel getFormattedLevel(Level level) {
+    int index = indexOf(level);
+    if (index < 0) {
+      return null;
+    }
+    // Non-localized names don't depend on the locale, so are always valid.
+    Locale locale = useLocalizedName ? Locale.getDefault() : null;
+    FormattedLevel formatted = cache[index];
+    if (formatted == null || formatted.locale != locale) {
+      formatted = new FormattedLevel(format(level), locale);
+      cache[index] = formatted;
+    }
+    return formatted;
+  }
+
+  private static int indexOf(Level level) {
+    // Custom levels can be equal to standard levels, so identity must be used.
+    for (int n = 0; n < STANDARD_LEVELS.length; n++) {
+      if (STANDARD_LEVELS[n] == level) {
+        return n;
+      }
+    }
+    return -1;
+  }
+
+  private String format(Level level) {
+    return useLocalizedName ? level.getLocalizedName() : level.getName();
+  }
+
+  /** The formatted name of a level (in a specific locale). */
+  private static final class FormattedLevel {
+    private final String name;
+    private final Locale locale;
+
+    FormattedLevel(String name, Locale locale) {
+      this.name = name;
+      this.locale = locale;
+    }
   }
 }
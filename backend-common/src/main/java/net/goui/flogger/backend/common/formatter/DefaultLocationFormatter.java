@@ -14,6 +14,7 @@ import com.google.common.flogger.LogSite;
 import com.google.common.flogger.backend.LogData;
 import com.google.common.flogger.backend.LogMessageFormatter;
 import com.google.common.flogger.backend.MetadataProcessor;
+import java.util.concurrent.ConcurrentHashMap;
 import net.goui.flogger.backend.common.Options;
 
 /**
@@ -22,16 +23,92 @@ import net.goui.flogger.backend.common.Options;
  *
  * <h3>Options</h3>
  *
- * <p>None.
+ * <ul>
+ *   <li>{@code flogger.message_formatter.location.class_name}: One of {@code FULL}, {@code
+ *       ABBREVIATED} or {@code SIMPLE}<br>
+ *       Controls how the class name is formatted. {@code FULL} (the default) emits the fully
+ *       qualified class name, {@code ABBREVIATED} shortens package names to their first letter
+ *       (e.g. {@code "c.f.b.MyClass"}) and {@code SIMPLE} omits the package entirely.
+ *   <li>{@code flogger.message_formatter.location.show_source}: Boolean<br>
+ *       Appends the source file name and line number, if known (e.g. {@code
+ *       "MyClass.java:123"}), in parentheses after the method name.
+ * </ul>
+ *
+ * <p>Since formatted locations are a function only of the log site, they are cached (up to some
+ * fixed limit), so the cost of formatting a location is only incurred the first time a log site
+ * is seen.
  */
 final class DefaultLocationFormatter extends LogMessageFormatter {
-  DefaultLocationFormatter(Options unused) {}
+  // Bigger than the number of distinct log statements in most applications, but small enough to
+  // avoid memory issues. Once full, uncached log sites are formatted on each use.
+  private static final int MAX_CACHE_SIZE = 4096;
+
+  /** How class names are formatted. */
+  enum ClassNameFormat {
+    FULL,
+    ABBREVIATED,
+    SIMPLE
+  }
+
+  private final ClassNameFormat classNameFormat;
+  private final boolean showSource;
+  // Log sites are compared by equality since some log sites (e.g. those determined from the stack)
+  // are new instances for each log statement. Injected or cached log sites use identity equality.
+  private final ConcurrentHashMap<LogSite, String> cache = new ConcurrentHashMap<>();
+
+  DefaultLocationFormatter(Options options) {
+    this.classNameFormat = options.getEnum("class_name", ClassNameFormat.FULL);
+    this.showSource = options.getBoolean("show_source", false);
+  }
 
   @Override
   public StringBuilder append(
       LogData logData, MetadataProcessor metadataProcessor, StringBuilder buffer) {
-    LogSite logSite = logData.getLogSite();
-    buffer.append(logSite.getClassName()).append("#").append(logSite.getMethodName());
-    return buffer;
+    return buffer.append(getFormattedLocation(logData.getLogSite()));
+  }
+
+  private String getFormattedLocation(LogSite logSite) {
+    String location = cache.get(logSite);
+    if (location == null) {
+      location = format(logSite);
+      // The invalid log site is only used for synthetic log statements, so is not worth caching.
+      if (cache.size() < MAX_CACHE_SIZE && logSite != LogSite.INVALID) {
+        String existing = cache.putIfAbsent(logSite, location);
+        if (existing != null) {
+          location = existing;
+        }
+      }
+    }
+    return location;
+  }
+
+  private String format(LogSite logSite) {
+    StringBuilder buffer = new StringBuilder();
+    appendClassName(logSite.getClassName(), buffer).append('#').append(logSite.getMethodName());
+    String fileName = logSite.getFileName();
+    if (showSource && fileName != null) {
+      buffer.append('(').append(fileName);
+      if (logSite.getLineNumber() != LogSite.UNKNOWN_LINE) {
+        buffer.append(':').append(logSite.getLineNumber());
+      }
+      buffer.append(')');
+    }
+    return buffer.toString();
+  }
+
+  private StringBuilder appendClassName(String className, StringBuilder buffer) {
+    int nameStart = className.lastIndexOf('.') + 1;
+    switch (classNameFormat) {
+      case SIMPLE:
+        return buffer.append(className, nameStart, className.length());
+      case ABBREVIATED:
+        // Emit the first character of each package segment (e.g. "com.foo.Bar" -> "c.f.Bar").
+        for (int start = 0; start < nameStart; start = className.indexOf('.', start) + 1) {
+          buffer.append(className.charAt(start)).append('.');
+        }
+        return buffer.append(className, nameStart, className.length());
+      default:
+        return buffer.append(className);
+    }
   }
 }
@@ -10,11 +10,10 @@
 
 package net.goui.flogger.backend.common.formatter;
 
-import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 
-import com.google.common.flogger.backend.BaseMessageFormatter;
+import com.google.common.flogger.LogSite;
 import com.google.common.flogger.backend.LogData;
 import com.google.common.flogger.backend.LogMessageFormatter;
 import com.google.common.flogger.backend.MetadataProcessor;
@@ -22,14 +21,16 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.regex.MatchResult;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
+import net.goui.flogger.backend.common.MessageBuffers;
 import net.goui.flogger.backend.common.Options;
 import net.goui.flogger.backend.common.PluginLoader;
+import net.goui.flogger.backend.common.TemplateMessage;
+import net.goui.flogger.backend.common.formatter.MetadataExtractor.CustomMetadataValues;
 
 /**
  * Flogger plugin for customizable log message formatting.
@@ -46,8 +47,20 @@ import net.goui.flogger.backend.common.PluginLoader;
  *   <li>{@code flogger.message_formatter.metadata.ignore}: String[]<br>
  *       A list of {@link com.google.common.flogger.MetadataKey MetadataKey} fields to be ignored
  *       when formatting the {@code %{metadata}} directive.
+ *   <li>{@code flogger.message_formatter.max_message_chars}: Integer<br>
+ *       The maximum length of text emitted by the {@code %{message}} directive. Longer messages are
+ *       truncated and followed by {@code "..."}. By default messages are not truncated.
+ *   <li>{@code flogger.message_formatter.metadata.max_value_chars}: Integer<br>
+ *       The maximum length of string metadata values emitted by the {@code %{metadata}} and {@code
+ *       %{key.<label>}} directives. Longer values are truncated, with {@code "..."} added inside the
+ *       quotes. By default metadata values are not truncated.
  * </ul>
  *
+ * <p>Length limits are applied while formatting, so the full text of a long value is never
+ * appended to the output buffer. However, values are still converted to strings in full (via
+ * {@code toString()}), and log messages with printf-style format arguments are formatted in full
+ * before being truncated.
+ *
  * <h3>Formatter Directives</h3>
  *
  * <p>Custom message formatting is controlled primarily by the {@code pattern} option, which defines
@@ -60,6 +73,7 @@ import net.goui.flogger.backend.common.PluginLoader;
  * <ul>
  *   <li>{@code %{message}}: Built-in<br>
  *       Emits the basic formatted log message (i.e. what was passed to the {@code log()} method).
+ *       Template messages (see {@link TemplateMessage}) are appended directly to the output.
  *   <li>{@code %{metadata}}: Built-in<br>
  *       Emits log metadata (e.g. scope or log site metadata such as task IDs or rate limiting
  *       information). Note that specific metadata can be formatted separately using {@code
@@ -128,8 +142,14 @@ import net.goui.flogger.backend.common.PluginLoader;
 public final class DefaultPatternFormatter extends LogMessageFormatter {
   private final MetadataExtractor metadataExtractor;
   private final LogMessageFormatter metadataFormatter;
-  private final List<String> parts;
-  private final List<BiConsumer<FormatContext, StringBuilder>> formatters;
+  private final JsonValueAppender valueAppender;
+  // The maximum length of formatted log messages, or zero if not limited.
+  private final int maxMessageChars;
+  // The literal parts of the pattern, with one more element than the directives array.
+  private final String[] parts;
+  private final Directive[] directives;
+  // Custom metadata extraction is only needed if the pattern contains %{key.<label>} directives.
+  private final boolean hasCustomKeys;
 
   private static final Pattern ESCAPED_CHAR = Pattern.compile("\\\\(.)");
 
@@ -153,19 +173,22 @@ public final class DefaultPatternFormatter extends LogMessageFormatter {
     // Options could be: raw, quote-if-string, escape-and-quote (JSON/HTML?)
     // * Single or double quotes.
     // * Escaping inner quotes.
-    BiConsumer<StringBuilder, Object> valueAppender = JsonValueAppender.jsonAppender();
+    this.valueAppender =
+        JsonValueAppender.jsonAppender((int) options.getLong("metadata.max_value_chars", 0));
+    this.maxMessageChars = (int) options.getLong("max_message_chars", 0);
 
     List<MatchResult> patternParts = parsePatternParts(formatPattern);
+    Set<String> keyNames = extractKeyNames(patternParts);
     this.metadataExtractor =
-        new MetadataExtractor(
-            options.getOptions("metadata"), extractKeyNames(patternParts), valueAppender);
+        new MetadataExtractor(options.getOptions("metadata"), keyNames, valueAppender);
     this.metadataFormatter = metadataExtractor.getMetadataFormatter();
+    this.hasCustomKeys = !keyNames.isEmpty();
 
-    this.parts = extractLiteralParts(patternParts, formatPattern);
-    this.formatters =
+    this.parts = extractLiteralParts(patternParts, formatPattern).toArray(new String[0]);
+    this.directives =
         patternParts.stream()
-            .map(m -> createFormatter(m, options, metadataFormatter, valueAppender))
-            .collect(toList());
+            .map(m -> createDirective(m, options, metadataExtractor))
+            .toArray(Directive[]::new);
   }
 
   private static List<MatchResult> parsePatternParts(String formatPattern) {
@@ -197,131 +220,178 @@ public final class DefaultPatternFormatter extends LogMessageFormatter {
         .collect(toList());
   }
 
-  private static BiConsumer<FormatContext, StringBuilder> createFormatter(
-      MatchResult m,
-      Options options,
-      LogMessageFormatter metadataFormatter,
-      BiConsumer<StringBuilder, Object> valueAppender) {
+  private static Directive createDirective(
+      MatchResult m, Options options, MetadataExtractor metadataExtractor) {
     // The directive name is a limited set of characters, so doesn't need unescaping.
     String label = m.group(2);
-    boolean isOptionalDirective = false;
-    BiConsumer<FormatContext, StringBuilder> formatter;
+    // Only some directives have a prefix/suffix, but where it's not present these are empty.
+    String prefix = unescape(m.group(3));
+    String suffix = unescape(m.group(4));
     switch (label) {
       case "message":
-        formatter = (c, b) -> BaseMessageFormatter.appendFormattedMessage(c.getLogData(), b);
-        break;
+        return Directive.required(Directive.MESSAGE, label, prefix, suffix, null);
       case "timestamp":
-        formatter = newFormatter(options, "timestamp", DefaultTimestampFormatter::new);
-        break;
+        return Directive.required(
+            Directive.PLUGIN,
+            label,
+            prefix,
+            suffix,
+            newFormatter(options, "timestamp", DefaultTimestampFormatter::new));
       case "location":
-        formatter = newFormatter(options, "location", DefaultLocationFormatter::new);
-        break;
+        return Directive.required(
+            Directive.PLUGIN,
+            label,
+            prefix,
+            suffix,
+            newFormatter(options, "location", DefaultLocationFormatter::new));
       case "level":
-        formatter = newFormatter(options, "level", DefaultLevelFormatter::new);
-        break;
+        return Directive.required(
+            Directive.PLUGIN,
+            label,
+            prefix,
+            suffix,
+            newFormatter(options, "level", DefaultLevelFormatter::new));
       case "metadata":
-        isOptionalDirective = true;
-        formatter = (c, b) -> metadataFormatter.append(c.getLogData(), c.getMetadata(), b);
-        break;
+        return new Directive(Directive.METADATA, -1, prefix, suffix, null);
       default:
         if (!label.startsWith("key.")) {
           throw new IllegalArgumentException(
               "unknown formatting directive %{" + label + "} in message format string");
         }
-        isOptionalDirective = true;
-        formatter = (c, b) -> valueAppender.accept(b, c.getCustomMetadataValue(label.substring(4)));
-        break;
+        int slot = metadataExtractor.getSlot(label.substring(4));
+        return new Directive(Directive.CUSTOM_KEY, slot, prefix, suffix, null);
     }
-    // Only some directives have a prefix/suffix, but where it's not present these are empty.
-    String prefix = unescape(m.group(3));
-    String suffix = unescape(m.group(4));
-    if (isOptionalDirective) {
-      return allowPrefixAndSuffix(prefix, suffix, formatter);
-    }
-    if (!prefix.isEmpty() || !suffix.isEmpty()) {
-      throw new IllegalArgumentException(
-          "format directive %{"
-              + label
-              + "} with non-optional value must not contain prefix or suffix");
-    }
-    return formatter;
   }
 
   private static String unescape(String s) {
     return s != null ? ESCAPED_CHAR.matcher(s).replaceAll("$1") : "";
   }
 
-  private static BiConsumer<FormatContext, StringBuilder> newFormatter(
+  private static LogMessageFormatter newFormatter(
       Options options, String optionName, Function<Options, LogMessageFormatter> newFn) {
-    LogMessageFormatter formatter =
-        PluginLoader.instantiate(
-            LogMessageFormatter.class, options.getOptions(optionName), Map.of("default", newFn));
-    return (c, b) -> formatter.append(c.getLogData(), c.getMetadata(), b);
+    return PluginLoader.instantiate(
+        LogMessageFormatter.class, options.getOptions(optionName), Map.of("default", newFn));
   }
 
-  private static BiConsumer<FormatContext, StringBuilder> allowPrefixAndSuffix(
-      String prefix, String suffix, BiConsumer<FormatContext, StringBuilder> delegate) {
-    return (c, b) -> {
-      int start = b.length();
-      b.append(prefix);
-      delegate.accept(c, b);
-      if (b.length() == start + prefix.length()) {
-        b.setLength(start);
+  @Override
+  public StringBuilder append(LogData logData, MetadataProcessor metadata, StringBuilder buffer) {
+    if (!hasCustomKeys) {
+      return append(logData, metadata, null, buffer);
+    }
+    // Extracted values for custom formatted metadata. Note that these are indexed by slots assigned
+    // to %{key.<label>} directives, and the labels DO NOT necessarily match the default labels of
+    // associated MetadataKeys (since a custom MetadataKey can emit multiple values with distinct
+    // labels). This means values cannot be looked up directly from the metadata.
+    CustomMetadataValues customMetadata = metadataExtractor.extractCustomMetadata(metadata);
+    try {
+      return append(logData, metadata, customMetadata, buffer);
+    } finally {
+      customMetadata.release();
+    }
+  }
+
+  private StringBuilder append(
+      LogData logData,
+      MetadataProcessor metadata,
+      CustomMetadataValues customMetadata,
+      StringBuilder buffer) {
+    Directive[] directives = this.directives;
+    String[] parts = this.parts;
+    for (int n = 0; n < directives.length; n++) {
+      buffer.append(parts[n]);
+      Directive directive = directives[n];
+      // Optional directives only emit their prefix/suffix if they emit a value.
+      int start = buffer.length();
+      buffer.append(directive.prefix);
+      int valueStart = buffer.length();
+      switch (directive.type) {
+        case Directive.MESSAGE:
+          appendMessage(logData, buffer);
+          break;
+        case Directive.METADATA:
+          metadataFormatter.append(logData, metadata, buffer);
+          break;
+        case Directive.CUSTOM_KEY:
+          valueAppender.accept(buffer, customMetadata.get(directive.slot));
+          break;
+        default:
+          directive.plugin.append(logData, metadata, buffer);
+          break;
+      }
+      if (buffer.length() == valueStart) {
+        buffer.setLength(start);
       } else {
-        b.append(suffix);
+        buffer.append(directive.suffix);
       }
-    };
+    }
+    return buffer.append(parts[directives.length]);
   }
 
+  // Overridden to format into a reusable buffer (e.g. for JDK log records).
   @Override
   public String format(LogData logData, MetadataProcessor metadata) {
-    return super.format(logData, metadata);
+    LogSite logSite = logData.getLogSite();
+    StringBuilder buffer = MessageBuffers.acquire(logSite);
+    try {
+      return append(logData, metadata, buffer).toString();
+    } finally {
+      MessageBuffers.release(logSite, buffer);
+    }
   }
 
-  @Override
-  public StringBuilder append(LogData logData, MetadataProcessor metadata, StringBuilder buffer) {
-    FormatContext context = new FormatContext(logData, metadata);
-    int partCount = formatters.size();
-    for (int n = 0; n < partCount; n++) {
-      buffer.append(parts.get(n));
-      formatters.get(n).accept(context, buffer);
+  private void appendMessage(LogData logData, StringBuilder buffer) {
+    if (maxMessageChars <= 0) {
+      TemplateMessage.appendFormattedMessage(logData, buffer);
+      return;
+    }
+    int start = buffer.length();
+    TemplateMessage.appendFormattedMessage(logData, buffer, maxMessageChars);
+    if (buffer.length() - start > maxMessageChars) {
+      buffer.setLength(JsonValueAppender.truncationIndex(buffer, start + maxMessageChars));
+      buffer.append(JsonValueAppender.TRUNCATION_MARKER);
     }
-    return buffer.append(parts.get(partCount));
   }
 
   /**
-   * Context passed to formatting callbacks providing access to all runtime log data.
+   * A single, pre-resolved formatting directive in the pattern.
    *
-   * <p>This approach allows long-lived, repeated use format directive callbacks to be created in
-   * the pattern formatter and minimizes work during actual log message formatting.
+   * <p>Built-in directives are dispatched via a switch on their type, and only plugin directives
+   * need a virtual call. This keeps the per-message work in {@link #append} to a simple loop over
+   * arrays, and custom key directives read their values from pre-assigned slots in reusable
+   * per-thread storage, so formatting does not allocate or perform any hashing.
    */
-  private class FormatContext {
-    private final LogData logData;
-    // All user supplied metadata (context and log-site), including custom formatted values.
-    private final MetadataProcessor metadata;
-    // Extracted values for custom formatted metadata. Note that the keys of the returned map DO NOT
-    // necessarily match the default labels of associated MetadataKeys (since a custom MetadataKey
-    // can emit multiple values with distinct labels). This means you cannot lookup values directly
-    // from the metadata in getCustomMetadataValue().
-    private final Map<String, Object> customMetadataMap;
-
-    FormatContext(LogData logData, MetadataProcessor metadata) {
-      this.logData = requireNonNull(logData);
-      this.metadata = requireNonNull(metadata);
-      this.customMetadataMap = metadataExtractor.extractCustomMetadata(metadata);
-    }
+  private static final class Directive {
+    static final int MESSAGE = 0;
+    static final int METADATA = 1;
+    static final int CUSTOM_KEY = 2;
+    static final int PLUGIN = 3;
 
-    LogData getLogData() {
-      return logData;
+    /** Returns a directive which always emits a value, and so cannot have a prefix or suffix. */
+    static Directive required(
+        int type, String label, String prefix, String suffix, LogMessageFormatter plugin) {
+      if (!prefix.isEmpty() || !suffix.isEmpty()) {
+        throw new IllegalArgumentException(
+            "format directive %{"
+                + label
+                + "} with non-optional value must not contain prefix or suffix");
+      }
+      return new Directive(type, -1, prefix, suffix, plugin);
     }
 
-    MetadataProcessor getMetadata() {
-      return metadata;
-    }
+    final int type;
+    // The custom metadata value slot (only for CUSTOM_KEY directives).
+    final int slot;
+    final String prefix;
+    final String suffix;
+    // The formatter plugin (only for PLUGIN directives).
+    final LogMessageFormatter plugin;
 
-    /** Returns the value of custom formatted metadata via the {@code %{key.<label>}} directive. */
-    Object getCustomMetadataValue(String label) {
-      return customMetadataMap.getOrDefault(label, null);
+    Directive(int type, int slot, String prefix, String suffix, LogMessageFormatter plugin) {
+      this.type = type;
+      this.slot = slot;
+      this.prefix = prefix;
+      this.suffix = suffix;
+      this.plugin = plugin;
     }
   }
 }
@@ -31,9 +31,25 @@ import net.goui.flogger.backend.common.Options;
  *   <li>{@code flogger.message_formatter.timestamp.zone_id}: String<br>
  *       Uses the specified {@link ZoneId} to adjust the timestamp's timezone.
  * </ul>
+ *
+ * <h3>Caching</h3>
+ *
+ * <p>Since log timestamps are mostly increasing, this formatter caches the formatted text for the
+ * current second (or minute, for patterns without seconds) and only formats the fractional part of
+ * the timestamp for each log message. The cache is determined by "probing" the formatter to find
+ * where fractional seconds are emitted (if at all), and any pattern which cannot be cached reliably
+ * (e.g. one with variable width fractional seconds) is formatted in full for each message.
  */
 final class DefaultTimestampFormatter extends LogMessageFormatter {
+  private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
   private final DateTimeFormatter dateTimeFormatter;
+  // True if the default ISO instant format is used, which has variable length fractional seconds.
+  private final boolean isIsoInstant;
+  // True if formatted timestamps can be cached (i.e. the formatter could be probed successfully).
+  private final boolean isCacheable;
+  // The most recently used cached timestamp, replaced atomically when the time range changes.
+  private volatile CachedTimestamp cache = null;
 
   DefaultTimestampFormatter(Options options) {
     String pattern = options.getString("pattern", "");
@@ -41,15 +57,145 @@ final class DefaultTimestampFormatter extends LogMessageFormatter {
     DateTimeFormatter formatter =
         pattern.isEmpty() ? DateTimeFormatter.ISO_INSTANT : DateTimeFormatter.ofPattern(pattern);
     this.dateTimeFormatter = formatter.withZone(zoneId.orElse(ZoneId.systemDefault()));
+    this.isIsoInstant = pattern.isEmpty();
+    this.isCacheable = newCachedTimestamp(Instant.now().getEpochSecond()) != null;
   }
 
   @Override
   public StringBuilder append(LogData logData, MetadataProcessor metadata, StringBuilder buffer) {
     long epochNanos = logData.getTimestampNanos();
-    long epochSeconds = epochNanos / 1_000_000_000;
-    int nanosOfSecond = (int) (epochNanos - (1_000_000_000 * epochSeconds));
-    Instant timestamp = Instant.ofEpochSecond(epochSeconds, nanosOfSecond);
-    dateTimeFormatter.formatTo(timestamp, buffer);
+    long epochSeconds = Math.floorDiv(epochNanos, NANOS_PER_SECOND);
+    int nanosOfSecond = (int) Math.floorMod(epochNanos, NANOS_PER_SECOND);
+    CachedTimestamp cached = isCacheable ? getCachedTimestamp(epochNanos) : null;
+    if (cached != null) {
+      return cached.append(nanosOfSecond, buffer);
+    }
+    dateTimeFormatter.formatTo(Instant.ofEpochSecond(epochSeconds, nanosOfSecond), buffer);
     return buffer;
   }
+
+  /** Returns the cached timestamp for the given timestamp, or null if it could not be cached. */
+  private CachedTimestamp getCachedTimestamp(long epochNanos) {
+    long epochSeconds = Math.floorDiv(epochNanos, NANOS_PER_SECOND);
+    CachedTimestamp cached = cache;
+    if (cached == null || !cached.contains(epochSeconds)) {
+      cached = newCachedTimestamp(epochSeconds);
+      if (cached != null) {
+        // Racing threads may both update the cache, but either value is valid.
+        cache = cached;
+      }
+    }
+    return cached;
+  }
+
+  /**
+   * Returns a new cached timestamp containing the given epoch second, or null if the formatted
+   * timestamp could not be cached.
+   */
+  private CachedTimestamp newCachedTimestamp(long epochSeconds) {
+    // If the timestamp is identical for the whole minute, cache it for the whole minute. Note that
+    // this also correctly handles timezones with non-integral minute offsets, since then the local
+    // minute will not be aligned with the epoch minute, and the formatted values will differ.
+    long minuteStart = Math.floorDiv(epochSeconds, 60) * 60;
+    String first = format(minuteStart, 0);
+    if (first.equals(format(minuteStart + 59, 0))) {
+      return newCachedTimestamp(minuteStart, minuteStart + 60, first);
+    }
+    return newCachedTimestamp(epochSeconds, epochSeconds + 1, format(epochSeconds, 0));
+  }
+
+  private CachedTimestamp newCachedTimestamp(long start, long end, String noFraction) {
+    if (isIsoInstant) {
+      // ISO instants always end with 'Z' and fractional seconds are emitted just before it.
+      return noFraction.endsWith("Z")
+          ? new CachedTimestamp(
+              start, end, noFraction.substring(0, noFraction.length() - 1), "Z", -1)
+          : null;
+    }
+    // Fractional seconds are truncated, so this gives the same text, except with 9's instead of
+    // 0's in any fractional seconds.
+    String maxFraction = format(start, (int) (NANOS_PER_SECOND - 1));
+    if (maxFraction.length() != noFraction.length()) {
+      return null;
+    }
+    int fractionStart = 0;
+    while (fractionStart < noFraction.length()
+        && noFraction.charAt(fractionStart) == maxFraction.charAt(fractionStart)) {
+      fractionStart++;
+    }
+    if (fractionStart == noFraction.length()) {
+      // No fractional seconds are emitted.
+      return new CachedTimestamp(start, end, noFraction, "", 0);
+    }
+    int fractionEnd = fractionStart;
+    while (fractionEnd < noFraction.length()
+        && noFraction.charAt(fractionEnd) == '0'
+        && maxFraction.charAt(fractionEnd) == '9') {
+      fractionEnd++;
+    }
+    String suffix = noFraction.substring(fractionEnd);
+    // There must be at most 9 fractional digits, and nothing else may differ.
+    if (fractionEnd - fractionStart > 9 || !suffix.equals(maxFraction.substring(fractionEnd))) {
+      return null;
+    }
+    return new CachedTimestamp(
+        start, end, noFraction.substring(0, fractionStart), suffix, fractionEnd - fractionStart);
+  }
+
+  private String format(long epochSeconds, int nanosOfSecond) {
+    return dateTimeFormatter.format(Instant.ofEpochSecond(epochSeconds, nanosOfSecond));
+  }
+
+  /** Immutable formatted timestamp text for a range of epoch seconds. */
+  private static final class CachedTimestamp {
+    private final long startSeconds;
+    private final long endSeconds;
+    private final String prefix;
+    private final String suffix;
+    // The number of fractional second digits to emit, or -1 for ISO instant formatting.
+    private final int fractionDigits;
+
+    CachedTimestamp(
+        long startSeconds, long endSeconds, String prefix, String suffix, int fractionDigits) {
+      this.startSeconds = startSeconds;
+      this.endSeconds = endSeconds;
+      this.prefix = prefix;
+      this.suffix = suffix;
+      this.fractionDigits = fractionDigits;
+    }
+
+    boolean contains(long epochSeconds) {
+      return epochSeconds >= startSeconds && epochSeconds < endSeconds;
+    }
+
+    StringBuilder append(int nanosOfSecond, StringBuilder buffer) {
+      buffer.append(prefix);
+      int digits = getFractionDigits(nanosOfSecond);
+      if (fractionDigits < 0 && digits > 0) {
+        buffer.append('.');
+      }
+      // Fractional seconds are truncated (not rounded) to the required number of digits.
+      int divisor = 100_000_000;
+      for (int n = 0; n < digits; n++, divisor /= 10) {
+        buffer.append((char) ('0' + (nanosOfSecond / divisor) % 10));
+      }
+      return buffer.append(suffix);
+    }
+
+    private int getFractionDigits(int nanosOfSecond) {
+      if (fractionDigits >= 0) {
+        return fractionDigits;
+      }
+      // Matches DateTimeFormatter.ISO_INSTANT, which emits 0, 3, 6 or 9 digits as needed.
+      if (nanosOfSecond == 0) {
+        return 0;
+      } else if (nanosOfSecond % 1_000_000 == 0) {
+        return 3;
+      } else if (nanosOfSecond % 1_000 == 0) {
+        return 6;
+      } else {
+        return 9;
+      }
+    }
+  }
 }
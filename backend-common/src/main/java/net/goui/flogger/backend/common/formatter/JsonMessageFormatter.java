@@ -0,0 +1,306 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.backend.common.formatter;
+
+import com.google.common.flogger.LogContext;
+import com.google.common.flogger.LogSite;
+import com.google.common.flogger.MetadataKey;
+import com.google.common.flogger.MetadataKey.KeyValueHandler;
+import com.google.common.flogger.backend.LogData;
+import com.google.common.flogger.backend.LogMessageFormatter;
+import com.google.common.flogger.backend.MetadataHandler;
+import com.google.common.flogger.backend.MetadataProcessor;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import net.goui.flogger.backend.common.MessageBuffers;
+import net.goui.flogger.backend.common.MetadataKeyLoader;
+import net.goui.flogger.backend.common.Options;
+import net.goui.flogger.backend.common.TemplateMessage;
+
+/**
+ * Flogger plugin for formatting log statements as single line JSON objects, selected via {@code
+ * flogger.message_formatter.impl=json}.
+ *
+ * <p>Each log statement is formatted as a JSON object with the following fields (absent values are
+ * omitted):
+ *
+ * <ul>
+ *   <li>{@code timestamp}: The timestamp string (see {@link DefaultTimestampFormatter}).
+ *   <li>{@code level}: The log level name.
+ *   <li>{@code logger}: The logger name.
+ *   <li>{@code class}, {@code method}, {@code line}, {@code file}: The log site.
+ *   <li>{@code message}: The basic formatted log message (see {@link TemplateMessage}).
+ *   <li>{@code metadata}: An object containing scope and log site metadata. Values of repeatable
+ *       metadata keys are always formatted as an array (even if there is only one value).
+ *   <li>{@code cause}: The stack trace of the log statement's cause.
+ * </ul>
+ *
+ * <p>This is useful if log output is consumed by tools which parse log messages, since it avoids
+ * the need to parse text output via complex regular expressions.
+ *
+ * <h3>Options</h3>
+ *
+ * <ul>
+ *   <li>{@code flogger.message_formatter.field.<name>}: String<br>
+ *       Renames one of the standard fields listed above (e.g. {@code field.message=msg}).
+ *   <li>{@code flogger.message_formatter.metadata.ignore}: String[]<br>
+ *       A list of {@link MetadataKey} fields to be ignored when formatting metadata.
+ *   <li>{@code flogger.message_formatter.timestamp.pattern}: String<br>
+ *       {@code flogger.message_formatter.timestamp.zone_id}: String<br>
+ *       Options for timestamp formatting (see {@link DefaultTimestampFormatter}).
+ * </ul>
+ */
+public final class JsonMessageFormatter extends LogMessageFormatter {
+  private static final BiConsumer<StringBuilder, Object> VALUE_APPENDER =
+      JsonValueAppender.jsonAppender();
+
+  private final LogMessageFormatter timestampFormatter;
+  private final MetadataHandler<JsonFieldWriter> metadataHandler;
+  // Field names are escaped and quoted once, including the following ':' (and any preceding ',').
+  private final String timestampField;
+  private final String levelField;
+  private final String loggerField;
+  private final String classField;
+  private final String methodField;
+  private final String lineField;
+  private final String fileField;
+  private final String messageField;
+  private final String metadataField;
+  private final String causeField;
+
+  /** Returns a configured Flogger plugin for JSON formatting based on the given options. */
+  public JsonMessageFormatter(Options options) {
+    this.timestampFormatter = new DefaultTimestampFormatter(options.getOptions("timestamp"));
+
+    Set<MetadataKey<?>> ignoredKeys =
+        new HashSet<>(
+            options.getValueArray("metadata.ignore", MetadataKeyLoader::loadMetadataKey));
+    // The cause is formatted separately.
+    ignoredKeys.add(LogContext.Key.LOG_CAUSE);
+    this.metadataHandler =
+        MetadataHandler.<JsonFieldWriter>builder(MetadataKey::safeEmit)
+            .setDefaultRepeatedHandler((key, values, writer) -> writer.handleRepeated(key, values))
+            .ignoring(ignoredKeys)
+            .build();
+
+    Options fields = options.getOptions("field");
+    // The timestamp is always the first field in the object.
+    this.timestampField = fieldName(fields, "timestamp", "{");
+    this.levelField = fieldName(fields, "level", ",");
+    this.loggerField = fieldName(fields, "logger", ",");
+    this.classField = fieldName(fields, "class", ",");
+    this.methodField = fieldName(fields, "method", ",");
+    this.lineField = fieldName(fields, "line", ",");
+    this.fileField = fieldName(fields, "file", ",");
+    this.messageField = fieldName(fields, "message", ",");
+    this.metadataField = fieldName(fields, "metadata", ",");
+    this.causeField = fieldName(fields, "cause", ",");
+  }
+
+  private static String fieldName(Options fields, String name, String separator) {
+    StringBuilder out = new StringBuilder(separator);
+    JsonValueAppender.appendJsonString(out, fields.getString(name, name));
+    return out.append(':').toString();
+  }
+
+  // Overridden to format into a reusable buffer (e.g. for JDK log records).
+  @Override
+  public String format(LogData logData, MetadataProcessor metadata) {
+    LogSite logSite = logData.getLogSite();
+    StringBuilder buffer = MessageBuffers.acquire(logSite);
+    try {
+      return append(logData, metadata, buffer).toString();
+    } finally {
+      MessageBuffers.release(logSite, buffer);
+    }
+  }
+
+  @Override
+  public StringBuilder append(LogData logData, MetadataProcessor metadata, StringBuilder buffer) {
+    // Text which is formatted directly into the buffer is escaped afterwards (if needed).
+    int start = buffer.append(timestampField).append('"').length();
+    timestampFormatter.append(logData, metadata, buffer);
+    JsonValueAppender.escapeFrom(buffer, start).append('"');
+    JsonValueAppender.appendJsonString(buffer.append(levelField), logData.getLevel().getName());
+    JsonValueAppender.appendJsonString(buffer.append(loggerField), logData.getLoggerName());
+
+    LogSite logSite = logData.getLogSite();
+    if (logSite != LogSite.INVALID) {
+      JsonValueAppender.appendJsonString(buffer.append(classField), logSite.getClassName());
+      JsonValueAppender.appendJsonString(buffer.append(methodField), logSite.getMethodName());
+      if (logSite.getLineNumber() != LogSite.UNKNOWN_LINE) {
+        buffer.append(lineField).append(logSite.getLineNumber());
+      }
+      String fileName = logSite.getFileName();
+      if (fileName != null) {
+        JsonValueAppender.appendJsonString(buffer.append(fileField), fileName);
+      }
+    }
+
+    start = buffer.append(messageField).append('"').length();
+    TemplateMessage.appendFormattedMessage(logData, buffer);
+    JsonValueAppender.escapeFrom(buffer, start).append('"');
+
+    if (metadata.keyCount() > 0) {
+      start = buffer.length();
+      buffer.append(metadataField).append('{');
+      if (JsonFieldWriter.write(buffer, metadata, metadataHandler)) {
+        buffer.append('}');
+      } else {
+        // Only ignored metadata was present.
+        buffer.setLength(start);
+      }
+    }
+
+    Throwable cause = metadata.getSingleValue(LogContext.Key.LOG_CAUSE);
+    if (cause != null) {
+      StringWriter stackTrace = new StringWriter();
+      cause.printStackTrace(new PrintWriter(stackTrace));
+      JsonValueAppender.appendJsonString(buffer.append(causeField), stackTrace.toString());
+    }
+    return buffer.append('}');
+  }
+
+  /**
+   * Writes metadata key/value pairs as JSON fields. Values emitted by repeatable metadata keys are
+   * written as a JSON array, so each field has the same shape regardless of how many values it has.
+   *
+   * <p>Normally fields are written directly to the buffer. In the rare case that the same label is
+   * emitted for different fields (e.g. distinct keys with the same label), the fields are rewritten
+   * with values grouped by label, so that the JSON object never contains duplicate names.
+   */
+  private static final class JsonFieldWriter implements KeyValueHandler {
+    private final StringBuilder out;
+    // Labels written so far (for detecting duplicates).
+    private final List<String> labels = new ArrayList<>();
+    // Values grouped by label, only when rewriting fields (otherwise null).
+    private final Map<String, List<Object>> grouped;
+    // Labels with values from repeatable keys, only when rewriting fields (otherwise null).
+    private final Set<String> arrayLabels;
+    // Set while values of a repeatable key are being emitted.
+    private boolean inRepeated = false;
+    // The label of the currently open array, or null (only used when values are not grouped).
+    private String arrayLabel = null;
+    private boolean hasDuplicateLabels = false;
+
+    /**
+     * Writes the given metadata as JSON fields (without the enclosing braces), returning whether
+     * any fields were written.
+     */
+    static boolean write(
+        StringBuilder out, MetadataProcessor metadata, MetadataHandler<JsonFieldWriter> handler) {
+      int start = out.length();
+      JsonFieldWriter writer = new JsonFieldWriter(out, false);
+      metadata.process(handler, writer);
+      if (writer.hasDuplicateLabels) {
+        out.setLength(start);
+        writer = new JsonFieldWriter(out, true);
+        metadata.process(handler, writer);
+      }
+      return writer.finish();
+    }
+
+    private JsonFieldWriter(StringBuilder out, boolean groupValues) {
+      this.out = out;
+      this.grouped = groupValues ? new LinkedHashMap<>() : null;
+      this.arrayLabels = groupValues ? new HashSet<>() : null;
+    }
+
+    void handleRepeated(MetadataKey<Object> key, Iterator<Object> values) {
+      inRepeated = true;
+      try {
+        key.safeEmitRepeated(values, this);
+      } finally {
+        inRepeated = false;
+        closeArray();
+      }
+    }
+
+    @Override
+    public void handle(String label, Object value) {
+      if (grouped != null) {
+        grouped.computeIfAbsent(label, k -> new ArrayList<>()).add(value);
+        if (inRepeated) {
+          arrayLabels.add(label);
+        }
+        return;
+      }
+      if (inRepeated && label.equals(arrayLabel)) {
+        appendValue(out.append(','), value);
+        return;
+      }
+      closeArray();
+      if (labels.contains(label)) {
+        // The output is discarded and rewritten (see write()), but keep going for simplicity.
+        hasDuplicateLabels = true;
+      }
+      appendLabel(label);
+      if (inRepeated) {
+        out.append('[');
+        arrayLabel = label;
+      }
+      appendValue(out, value);
+    }
+
+    /** Finishes writing fields, returning whether any fields were written. */
+    private boolean finish() {
+      if (grouped != null) {
+        for (Map.Entry<String, List<Object>> e : grouped.entrySet()) {
+          String label = e.getKey();
+          List<Object> values = e.getValue();
+          appendLabel(label);
+          if (values.size() == 1 && !arrayLabels.contains(label)) {
+            appendValue(out, values.get(0));
+          } else {
+            out.append('[');
+            for (int n = 0; n < values.size(); n++) {
+              appendValue(n > 0 ? out.append(',') : out, values.get(n));
+            }
+            out.append(']');
+          }
+        }
+      }
+      closeArray();
+      return !labels.isEmpty();
+    }
+
+    private void appendLabel(String label) {
+      if (!labels.isEmpty()) {
+        out.append(',');
+      }
+      labels.add(label);
+      JsonValueAppender.appendJsonString(out, label).append(':');
+    }
+
+    private static void appendValue(StringBuilder out, Object value) {
+      if (value != null) {
+        VALUE_APPENDER.accept(out, value);
+      } else {
+        out.append("null");
+      }
+    }
+
+    private void closeArray() {
+      if (arrayLabel != null) {
+        out.append(']');
+        arrayLabel = null;
+      }
+    }
+  }
+}
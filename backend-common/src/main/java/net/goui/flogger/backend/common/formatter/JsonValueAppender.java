@@ -13,38 +13,150 @@ package net.goui.flogger.backend.common.formatter;
 import com.google.common.flogger.backend.MessageUtils;
 import java.util.function.BiConsumer;
 
-/** Simple helper to append metadata values during formatting is a JSON compatible way. */
-final class JsonValueAppender {
-  /** Returns an appender used by default formatting for metadata. */
-  static BiConsumer<StringBuilder, Object> jsonAppender() {
-    return JsonValueAppender::append;
+/**
+ * Simple helper to append metadata values during formatting is a JSON compatible way.
+ *
+ * <p>String values can optionally be truncated to a maximum length, in which case only the start of
+ * the value is escaped and appended, followed by {@link #TRUNCATION_MARKER}.
+ *
+ * <p>Non-finite floating point values ({@code NaN} and {@code Infinity}) have no JSON number
+ * representation, so they are appended as strings (e.g. {@code "NaN"}).
+ */
+final class JsonValueAppender implements BiConsumer<StringBuilder, Object> {
+  /** Appended (inside the quotes) to string values which were truncated. */
+  static final String TRUNCATION_MARKER = "...";
+
+  private static final JsonValueAppender JSON_APPENDER = new JsonValueAppender(0);
+
+  // Lookup table for characters which must be escaped in JSON strings (which is all characters up
+  // to and including '\\'). A zero entry means the character needs no escaping, 'u' means it must
+  // be escaped as a 4-digit hex value, and any other entry is the character to follow a backslash.
+  private static final char[] ESCAPES = new char['\\' + 1];
+
+  static {
+    for (char c = 0; c < 0x20; c++) {
+      ESCAPES[c] = 'u';
+    }
+    ESCAPES['\b'] = 'b';
+    ESCAPES['\f'] = 'f';
+    ESCAPES['\n'] = 'n';
+    ESCAPES['\r'] = 'r';
+    ESCAPES['\t'] = 't';
+    ESCAPES['"'] = '"';
+    ESCAPES['\\'] = '\\';
+  }
+
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  /** Returns an appender used by default formatting for metadata (this is a singleton). */
+  static JsonValueAppender jsonAppender() {
+    return JSON_APPENDER;
   }
 
-  private static void append(StringBuilder out, Object value) {
+  /**
+   * Returns an appender which truncates string values longer than the given maximum length (or
+   * which does not truncate values if the given length is not positive).
+   */
+  static JsonValueAppender jsonAppender(int maxValueChars) {
+    return maxValueChars > 0 ? new JsonValueAppender(maxValueChars) : JSON_APPENDER;
+  }
+
+  // The maximum length of string values (not including the truncation marker), or zero.
+  private final int maxValueChars;
+
+  private JsonValueAppender(int maxValueChars) {
+    this.maxValueChars = maxValueChars;
+  }
+
+  @Override
+  public void accept(StringBuilder out, Object value) {
     if (value != null) {
-      if (value instanceof Number || value instanceof Boolean) {
+      if (isJsonNumber(value) || value instanceof Boolean) {
         out.append(value);
       } else {
         // safeToString() formats things like arrays better than String.valueOf().
-        appendJsonEscape(out.append('"'), MessageUtils.safeToString(value)).append('"');
+        String s = MessageUtils.safeToString(value);
+        int end = truncatedLength(s);
+        appendJsonEscape(out.append('"'), s, end);
+        if (end < s.length()) {
+          out.append(TRUNCATION_MARKER);
+        }
+        out.append('"');
       }
     }
   }
 
-  private static StringBuilder appendJsonEscape(StringBuilder out, String s) {
-    int start = 0;
-    int idx;
-    for (idx = 0; idx < s.length(); idx++) {
-      int escIdx = "\"\\\n\t\r".indexOf(s.charAt(idx));
-      if (escIdx == -1) {
-        continue;
-      }
-      out.append(s, start, idx).append('\\').append("\"\\ntr".charAt(escIdx));
-      start = idx + 1;
+  private static boolean isJsonNumber(Object value) {
+    if (value instanceof Double) {
+      return Double.isFinite((Double) value);
+    }
+    if (value instanceof Float) {
+      return Float.isFinite((Float) value);
+    }
+    return value instanceof Number;
+  }
+
+  private int truncatedLength(String s) {
+    return maxValueChars > 0 && s.length() > maxValueChars
+        ? truncationIndex(s, maxValueChars)
+        : s.length();
+  }
+
+  /**
+   * Returns the index at which to truncate the given text so that it is no longer than the given
+   * index, without splitting a surrogate pair.
+   */
+  static int truncationIndex(CharSequence s, int index) {
+    return index > 0 && Character.isHighSurrogate(s.charAt(index - 1)) ? index - 1 : index;
+  }
+
+  /** Appends the given string as a quoted and escaped JSON string. */
+  static StringBuilder appendJsonString(StringBuilder out, String s) {
+    return appendJsonEscape(out.append('"'), s, s.length()).append('"');
+  }
+
+  /**
+   * Escapes any characters in the given buffer from the given index onwards in-place, so that text
+   * can be formatted directly into the buffer and escaped afterwards. In the common case where no
+   * characters need escaping, this does not allocate.
+   */
+  static StringBuilder escapeFrom(StringBuilder out, int start) {
+    int idx = nextEscapeIndex(out, start, out.length());
+    if (idx < out.length()) {
+      String unescaped = out.substring(idx);
+      out.setLength(idx);
+      appendJsonEscape(out, unescaped, unescaped.length());
     }
-    out.append(s, start, idx);
     return out;
   }
 
-  private JsonValueAppender() {}
+  /**
+   * Returns the index of the first character in the given range which must be escaped, or {@code
+   * end} if there is none. Values rarely need escaping, so this simple loop over the table is the
+   * hot path for most metadata values.
+   */
+  private static int nextEscapeIndex(CharSequence s, int idx, int end) {
+    char[] escapes = ESCAPES;
+    for (; idx < end; idx++) {
+      char c = s.charAt(idx);
+      if (c < escapes.length && escapes[c] != 0) {
+        break;
+      }
+    }
+    return idx;
+  }
+
+  /** Appends the escaped text of the given string, up to the given end index. */
+  private static StringBuilder appendJsonEscape(StringBuilder out, String s, int end) {
+    int start = 0;
+    for (int idx; (idx = nextEscapeIndex(s, start, end)) < end; start = idx + 1) {
+      char c = s.charAt(idx);
+      char esc = ESCAPES[c];
+      out.append(s, start, idx).append('\\').append(esc);
+      if (esc == 'u') {
+        out.append("00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+      }
+    }
+    return out.append(s, start, end);
+  }
 }
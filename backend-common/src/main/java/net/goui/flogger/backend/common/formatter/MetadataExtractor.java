@@ -16,6 +16,7 @@ import com.google.common.flogger.backend.LogData;
 import com.google.common.flogger.backend.LogMessageFormatter;
 import com.google.common.flogger.backend.MetadataHandler;
 import com.google.common.flogger.backend.MetadataProcessor;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
@@ -38,7 +39,13 @@ final class MetadataExtractor {
 
   private final MetadataHandler<CustomMetadataCollector> customMetadataCollector;
   private final LogMessageFormatter metadataFormatter;
-  private final Map<MetadataKey<?>, Map<String, String>> customMetadataLabels;
+  // Mapping from custom key name (as used in %{key.<name>} directives) to its value slot index.
+  private final Map<String, Integer> customKeySlots;
+  // Emitted labels and associated slot indices for each custom formatted metadata key.
+  private final Map<MetadataKey<?>, LabelSlots> customMetadataLabels;
+  // Reusable per-thread collectors, to avoid allocating for each formatted log message.
+  private final ThreadLocal<CustomMetadataCollector> collectors =
+      ThreadLocal.withInitial(CustomMetadataCollector::new);
 
   /**
    * Returns a new extractor based on a format template.
@@ -52,15 +59,18 @@ final class MetadataExtractor {
    */
   MetadataExtractor(
       Options options, Set<String> keyNames, BiConsumer<StringBuilder, Object> valueAppender) {
+    this.customKeySlots = new HashMap<>();
     this.customMetadataLabels = new IdentityHashMap<>();
     for (String keyName : keyNames) {
       KeySpec key =
           options
               .getValue("key." + keyName, KeySpec::parse)
               .orElseThrow(() -> new IllegalStateException("no such key: " + keyName));
+      int slot = customKeySlots.size();
+      customKeySlots.put(keyName, slot);
       customMetadataLabels
-          .computeIfAbsent(key.getMetadataKey(), k -> new HashMap<>())
-          .put(key.getLabel(), keyName);
+          .computeIfAbsent(key.getMetadataKey(), k -> new LabelSlots())
+          .add(key.getLabel(), slot);
     }
 
     MetadataHandler.Builder<CustomMetadataCollector> extractor =
@@ -87,11 +97,33 @@ final class MetadataExtractor {
     this.metadataFormatter = new MetadataFormatter(handler, valueAppender);
   }
 
-  /** Extracts a map of label-to-value from the given metadata for custom formatting. */
-  Map<String, Object> extractCustomMetadata(MetadataProcessor metadata) {
-    CustomMetadataCollector collector = new CustomMetadataCollector();
+  /**
+   * Returns the index of the value slot for the given custom key name (as given in a {@code
+   * %{key.<name>}} directive) in the values extracted by {@link #extractCustomMetadata}.
+   */
+  int getSlot(String keyName) {
+    Integer slot = customKeySlots.get(keyName);
+    if (slot == null) {
+      throw new IllegalArgumentException("unknown custom key name: " + keyName);
+    }
+    return slot;
+  }
+
+  /**
+   * Extracts values from the given metadata for custom formatting, indexed by the slot indices
+   * given by {@link #getSlot(String)}. The returned values are reused and must be released by the
+   * caller via {@link CustomMetadataValues#release()} after formatting is complete.
+   */
+  CustomMetadataValues extractCustomMetadata(MetadataProcessor metadata) {
+    CustomMetadataCollector collector = collectors.get();
+    if (collector.inUse) {
+      // Formatting is reentrant (e.g. a metadata value logged during formatting), so don't reuse.
+      collector = new CustomMetadataCollector();
+    }
+    collector.inUse = true;
     metadata.process(customMetadataCollector, collector);
-    return collector.getKeyMap();
+    collector.labelSlots = null;
+    return collector;
   }
 
   /** Returns the formatter for non-custom metadata. */
@@ -132,37 +164,81 @@ final class MetadataExtractor {
     }
   }
 
-  /** Mutable collector to extract the custom formatted metadata values. This is not thread safe. */
-  private class CustomMetadataCollector implements KeyValueHandler {
-    // The mapping from metadata formatting label (as defined by a %{key.<label>} directive)
-    // to the associated metadata value. This is just a map, rather than a multimap, because format
-    // labels must be unique.
-    private final Map<String, Object> collectedKeys = new HashMap<>();
-    // A disambiguation mapping from emitted metadata keys (which can be duplicated across different
-    // metadata) to metadata formatting labels (which must be unique).
+  /** Custom formatted metadata values extracted from a single log statement. */
+  interface CustomMetadataValues {
+    /** Returns the extracted value for the given slot index, or null if there is no value. */
+    Object get(int slot);
+
+    /** Releases these values after formatting is complete. */
+    void release();
+  }
+
+  /** The emitted labels (and associated value slots) for a custom formatted metadata key. */
+  private static final class LabelSlots {
+    private String[] labels = new String[0];
+    private int[] slots = new int[0];
+
+    void add(String label, int slot) {
+      int n = labels.length;
+      labels = Arrays.copyOf(labels, n + 1);
+      slots = Arrays.copyOf(slots, n + 1);
+      labels[n] = label;
+      slots[n] = slot;
+    }
+
+    /** Returns the slot index for an emitted label, or -1 if the label is not custom formatted. */
+    int getSlot(String label) {
+      // There is almost always only one label per key, so a linear search is fastest. Emitted
+      // labels are usually the same instance as the key's label, so equals() is cheap.
+      for (int n = 0; n < labels.length; n++) {
+        if (labels[n].equals(label)) {
+          return slots[n];
+        }
+      }
+      return -1;
+    }
+  }
+
+  /**
+   * Mutable collector to extract the custom formatted metadata values. This is not thread safe,
+   * and instances are reused (per thread) for formatting successive log statements.
+   */
+  private class CustomMetadataCollector implements KeyValueHandler, CustomMetadataValues {
+    // Extracted values indexed by slot. This is just an array, rather than a multimap, because
+    // format labels must be unique.
+    private final Object[] values = new Object[customKeySlots.size()];
+    // The emitted labels and value slots for the key currently being processed. Emitted metadata
+    // keys can be duplicated across different metadata, but formatting labels must be unique.
     //
     // This field is reset each time the handler emits values to the collector, which avoids
     // allocating many unused key value handlers during extraction.
-    private Map<String, String> labelMap = null;
+    private LabelSlots labelSlots = null;
+    // True while this collector's values are being used for formatting.
+    private boolean inUse = false;
 
-    /** Resets the disambiguation map for the given key, and return ourselves as the handler. */
+    /** Resets the label mapping for the given key, and return ourselves as the handler. */
     KeyValueHandler getHandler(MetadataKey<?> key) {
-      this.labelMap = customMetadataLabels.getOrDefault(key, Map.of());
+      this.labelSlots = customMetadataLabels.get(key);
       return this;
     }
 
     @Override
     public void handle(String emittedLabel, Object value) {
-      String mappedLabel = labelMap.get(emittedLabel);
-      if (mappedLabel != null) {
-        collectedKeys.put(mappedLabel, value);
+      int slot = labelSlots != null ? labelSlots.getSlot(emittedLabel) : -1;
+      if (slot >= 0) {
+        values[slot] = value;
       }
     }
 
-    /** Finishes extraction by returning the collected values. */
-    public Map<String, Object> getKeyMap() {
-      this.labelMap = null;
-      return collectedKeys;
+    @Override
+    public Object get(int slot) {
+      return values[slot];
+    }
+
+    @Override
+    public void release() {
+      Arrays.fill(values, null);
+      inUse = false;
     }
   }
 
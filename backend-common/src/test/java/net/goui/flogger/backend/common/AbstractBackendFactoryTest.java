@@ -186,7 +186,98 @@ public class AbstractBackendFactoryTest {
         .startsWith("net.goui.flogger.backend");
   }
 
+  @Test
+  public void getJsonFormatter() {
+    // JSON formatter is tested thoroughly elsewhere, so just test the setup here.
+    ImmutableMap<String, String> opts = ImmutableMap.of("message_formatter.impl", "json");
+    TestFactory factory = new TestFactory(Options.of(opts::get));
+
+    FakeLogData data = FakeLogData.of("<message>").addMetadata(Key.BAR, 42);
+    MetadataProcessor metadata = MetadataProcessor.forScopeAndLogSite(data.getMetadata(), empty());
+
+    assertThat(factory.getMessageFormatter().format(data, metadata))
+        .endsWith(",\"message\":\"<message>\",\"metadata\":{\"bar\":42}}");
+    assertThat(factory.getMessageFormatter().getClass().getName())
+        .startsWith("net.goui.flogger.backend");
+  }
+
+  @Test
+  public void reconfigure() {
+    ImmutableMap<String, String> opts =
+        ImmutableMap.of(
+            "message_formatter.pattern",
+            "%{message}",
+            "backend_naming.roots.size",
+            "1",
+            "backend_naming.roots.0",
+            "com.foo");
+    TestFactory factory = new TestFactory(Options.of(opts::get));
+    assertThat(factory.create("com.foo.bar.Class").getLoggerName()).isEqualTo("com.foo");
+    // The formatter given to backends is fixed, but delegates to the current formatter.
+    LogMessageFormatter backendFormatter = factory.backendFormatter;
+
+    FakeLogData data = FakeLogData.of("<message>");
+    MetadataProcessor metadata = MetadataProcessor.forScopeAndLogSite(empty(), empty());
+    assertThat(backendFormatter.format(data, metadata)).isEqualTo("<message>");
+
+    ImmutableMap<String, String> newOpts =
+        ImmutableMap.of(
+            "message_formatter.pattern",
+            "[%{message}]",
+            "backend_naming.roots.size",
+            "1",
+            "backend_naming.roots.0",
+            "com.foo.bar");
+    assertThat(factory.reconfigure(Options.of(newOpts::get), List.of())).isTrue();
+    assertThat(backendFormatter.format(data, metadata)).isEqualTo("[<message>]");
+    assertThat(factory.getMessageFormatter().format(data, metadata)).isEqualTo("[<message>]");
+    assertThat(factory.create("com.foo.bar.Class").getLoggerName()).isEqualTo("com.foo.bar");
+
+    // Bad options are rejected, and the existing configuration is retained.
+    ImmutableMap<String, String> badOpts =
+        ImmutableMap.of("message_formatter.impl", "no.such.Class");
+    assertThat(factory.reconfigure(Options.of(badOpts::get), List.of())).isFalse();
+    assertThat(backendFormatter.format(data, metadata)).isEqualTo("[<message>]");
+  }
+
+  @Test
+  public void prewarm() throws InterruptedException {
+    ImmutableMap<String, String> opts =
+        ImmutableMap.of(
+            "prewarm.enabled",
+            "true",
+            "use_backend_cache",
+            "true",
+            "backend_naming.roots.size",
+            "2",
+            "backend_naming.roots.0",
+            "com.foo.*",
+            "backend_naming.roots.1",
+            "com.bar");
+    // System roots are pre-warmed even if they are not used for backend naming.
+    TestFactory factory = new TestFactory(Options.of(opts::get), "", "com.system");
+
+    // Pre-warming is started in the background when the first backend is created.
+    FakeBackend first = factory.create("org.other.Class");
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (factory.getPrewarmedBackends().isEmpty() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    List<FakeBackend> prewarmed = factory.getPrewarmedBackends();
+
+    assertThat(first.getLoggerName()).isEqualTo("org.other.Class");
+    assertThat(prewarmed).hasSize(3);
+    assertThat(prewarmed.get(0).getLoggerName()).isEqualTo("com.foo");
+    assertThat(prewarmed.get(1).getLoggerName()).isEqualTo("com.bar");
+    assertThat(prewarmed.get(2).getLoggerName()).isEqualTo("com.system");
+    // Cached backends are shared with subsequently created loggers.
+    assertThat(factory.create("com.bar.Class")).isSameInstanceAs(prewarmed.get(1));
+  }
+
   static class TestFactory extends AbstractBackendFactory<FakeBackend> {
+    // The formatter passed to the most recently created backend.
+    LogMessageFormatter backendFormatter = null;
+
     TestFactory(Options options, String... systemRoots) {
       super(options, List.of(systemRoots));
     }
@@ -194,6 +285,7 @@ public class AbstractBackendFactoryTest {
     @Override
     protected FakeBackend newBackend(
         String backendName, LogMessageFormatter formatter, Options options) {
+      backendFormatter = formatter;
       return new FakeBackend(backendName);
     }
   }
@@ -212,7 +304,8 @@ public class AbstractBackendFactoryTest {
 
     @Override
     public boolean isLoggable(Level level) {
-      throw new UnsupportedOperationException();
+      // Called when backends are pre-warmed.
+      return true;
     }
 
     @Override
@@ -0,0 +1,238 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.backend.common;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.flogger.MetadataKey;
+import com.google.common.flogger.backend.LogData;
+import com.google.common.flogger.backend.LoggerBackend;
+import com.google.common.flogger.testing.FakeLogData;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Level;
+import net.goui.flogger.backend.common.AsyncDispatcher.OverflowPolicy;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class AsyncDispatcherTest {
+  private static final MetadataKey<String> FOO = MetadataKey.single("foo", String.class);
+
+  @Test
+  public void testDispatch_usesConsumerThread() throws InterruptedException {
+    AsyncDispatcher dispatcher = new AsyncDispatcher(16, OverflowPolicy.BLOCK);
+    RecordingBackend backend = new RecordingBackend(1);
+
+    dispatcher.dispatch(backend, FakeLogData.of("hello").addMetadata(FOO, "bar"));
+    backend.await();
+
+    LogData logged = backend.logged.get(0);
+    assertThat(logged).isInstanceOf(LogDataSnapshot.class);
+    assertThat(logged.getLiteralArgument()).isEqualTo("hello");
+    assertThat(logged.getMetadata().findValue(FOO)).isEqualTo("bar");
+    assertThat(backend.threads.get(0)).isNotEqualTo(Thread.currentThread().getName());
+    LogDataSnapshot snapshot = (LogDataSnapshot) logged;
+    assertThat(snapshot.getThreadName()).isEqualTo(Thread.currentThread().getName());
+    assertThat(snapshot.getThreadId()).isEqualTo(Thread.currentThread().getId());
+    dispatcher.shutdown(1000);
+  }
+
+  @Test
+  public void testDispatch_preservesOrder() throws InterruptedException {
+    AsyncDispatcher dispatcher = new AsyncDispatcher(4, OverflowPolicy.BLOCK);
+    RecordingBackend backend = new RecordingBackend(100);
+
+    for (int n = 0; n < 100; n++) {
+      dispatcher.dispatch(backend, FakeLogData.withPrintfStyleArgs("n=%d", n));
+    }
+    backend.await();
+
+    for (int n = 0; n < 100; n++) {
+      assertThat(backend.logged.get(n).getArguments()).asList().containsExactly(n);
+    }
+    assertThat(dispatcher.getDroppedCount()).isEqualTo(0);
+    dispatcher.shutdown(1000);
+  }
+
+  @Test
+  public void testDispatch_discardWhenFull() throws InterruptedException {
+    AsyncDispatcher dispatcher = new AsyncDispatcher(4, OverflowPolicy.DISCARD);
+    BlockingBackend backend = new BlockingBackend();
+
+    // The first statement is taken from the queue and blocks the consumer.
+    dispatcher.dispatch(backend, FakeLogData.of("first"));
+    backend.started.await(10, SECONDS);
+    for (int n = 0; n < 10; n++) {
+      dispatcher.dispatch(backend, FakeLogData.of("n=" + n));
+    }
+    assertThat(dispatcher.getDroppedCount()).isEqualTo(6);
+    assertThat(dispatcher.getQueueSize()).isEqualTo(4);
+
+    backend.release.countDown();
+    dispatcher.shutdown(10000);
+    assertThat(backend.logged).hasSize(5);
+  }
+
+  @Test
+  public void testDispatch_dropLowestLevel() throws InterruptedException {
+    AsyncDispatcher dispatcher = new AsyncDispatcher(8, OverflowPolicy.DROP_LOWEST_LEVEL);
+    BlockingBackend backend = new BlockingBackend();
+
+    dispatcher.dispatch(backend, FakeLogData.of("first"));
+    backend.started.await(10, SECONDS);
+    // Half full, so only statements below INFO are dropped.
+    for (int n = 0; n < 4; n++) {
+      dispatcher.dispatch(backend, FakeLogData.of("info").setLevel(Level.INFO));
+    }
+    dispatcher.dispatch(backend, FakeLogData.of("fine").setLevel(Level.FINE));
+    assertThat(dispatcher.getDroppedCount()).isEqualTo(1);
+    dispatcher.dispatch(backend, FakeLogData.of("info").setLevel(Level.INFO));
+    dispatcher.dispatch(backend, FakeLogData.of("info").setLevel(Level.INFO));
+    // Three quarters full, so statements below WARNING are dropped.
+    dispatcher.dispatch(backend, FakeLogData.of("info").setLevel(Level.INFO));
+    assertThat(dispatcher.getDroppedCount()).isEqualTo(2);
+    dispatcher.dispatch(backend, FakeLogData.of("warning").setLevel(Level.WARNING));
+    dispatcher.dispatch(backend, FakeLogData.of("warning").setLevel(Level.WARNING));
+    // Full, so even warnings are dropped.
+    dispatcher.dispatch(backend, FakeLogData.of("warning").setLevel(Level.WARNING));
+    assertThat(dispatcher.getDroppedCount()).isEqualTo(3);
+
+    backend.release.countDown();
+    dispatcher.shutdown(10000);
+    assertThat(backend.logged).hasSize(9);
+  }
+
+  @Test
+  public void testDispatch_afterShutdownIsSynchronous() {
+    AsyncDispatcher dispatcher = new AsyncDispatcher(16, OverflowPolicy.BLOCK);
+    dispatcher.shutdown(1000);
+    RecordingBackend backend = new RecordingBackend(1);
+
+    LogData data = FakeLogData.of("hello");
+    dispatcher.dispatch(backend, data);
+
+    assertThat(backend.logged).containsExactly(data);
+    assertThat(backend.threads).containsExactly(Thread.currentThread().getName());
+  }
+
+  @Test
+  public void testShutdown_flushesPendingStatements() throws InterruptedException {
+    AsyncDispatcher dispatcher = new AsyncDispatcher(128, OverflowPolicy.BLOCK);
+    BlockingBackend backend = new BlockingBackend();
+
+    dispatcher.dispatch(backend, FakeLogData.of("first"));
+    backend.started.await(10, SECONDS);
+    for (int n = 0; n < 100; n++) {
+      dispatcher.dispatch(backend, FakeLogData.of("n=" + n));
+    }
+    backend.release.countDown();
+    dispatcher.shutdown(10000);
+
+    assertThat(backend.logged).hasSize(101);
+    assertThat(dispatcher.getQueueSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void testFactory_asyncEnabled() {
+    ImmutableMap<String, String> opts =
+        ImmutableMap.of("async.enabled", "true", "async.overflow_policy", "discard");
+    AbstractBackendFactoryTest.TestFactory factory =
+        new AbstractBackendFactoryTest.TestFactory(Options.of(opts::get));
+
+    LoggerBackend backend = factory.createBackend("com.foo.Class");
+    assertThat(backend).isInstanceOf(AsyncBackend.class);
+    assertThat(backend.getLoggerName()).isEqualTo("com.foo.Class");
+    assertThat(((AsyncBackend) backend).getDelegate())
+        .isInstanceOf(AbstractBackendFactoryTest.FakeBackend.class);
+  }
+
+  @Test
+  public void testFactory_invalidQueueSize_usesDefault() {
+    ImmutableMap<String, String> opts =
+        ImmutableMap.of("async.enabled", "true", "async.queue_size", "0");
+    AbstractBackendFactoryTest.TestFactory factory =
+        new AbstractBackendFactoryTest.TestFactory(Options.of(opts::get));
+
+    // A bad queue size must not prevent the factory from creating backends.
+    assertThat(factory.createBackend("com.foo.Class")).isInstanceOf(AsyncBackend.class);
+  }
+
+  @Test
+  public void testFactory_asyncDisabled() {
+    AbstractBackendFactoryTest.TestFactory factory =
+        new AbstractBackendFactoryTest.TestFactory(Options.of(s -> null));
+
+    assertThat(factory.createBackend("com.foo.Class"))
+        .isInstanceOf(AbstractBackendFactoryTest.FakeBackend.class);
+  }
+
+  private static class RecordingBackend extends LoggerBackend {
+    final List<LogData> logged = new ArrayList<>();
+    final List<String> threads = new ArrayList<>();
+    private final CountDownLatch done;
+
+    RecordingBackend(int expectedCount) {
+      this.done = new CountDownLatch(expectedCount);
+    }
+
+    void await() throws InterruptedException {
+      assertThat(done.await(10, SECONDS)).isTrue();
+    }
+
+    @Override
+    public String getLoggerName() {
+      return "test";
+    }
+
+    @Override
+    public boolean isLoggable(Level level) {
+      return true;
+    }
+
+    @Override
+    public synchronized void log(LogData data) {
+      logged.add(data);
+      threads.add(Thread.currentThread().getName());
+      done.countDown();
+    }
+
+    @Override
+    public void handleError(RuntimeException error, LogData badData) {
+      throw error;
+    }
+  }
+
+  /** Blocks the consumer thread in the first log statement until released. */
+  private static final class BlockingBackend extends RecordingBackend {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+
+    BlockingBackend() {
+      super(0);
+    }
+
+    @Override
+    public void log(LogData data) {
+      started.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        throw new AssertionError(e);
+      }
+      super.log(data);
+    }
+  }
+}
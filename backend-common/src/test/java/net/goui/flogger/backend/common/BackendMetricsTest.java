@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.backend.common;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class BackendMetricsTest {
+  @Test
+  public void testFanIn() {
+    BackendMetrics metrics = new BackendMetrics();
+
+    metrics.recordLogger("com.foo");
+    metrics.recordLogger("com.foo");
+    metrics.recordLogger("com.bar");
+
+    assertThat(metrics.getLoggerCount()).isEqualTo(3L);
+    assertThat(metrics.getBackendNameFanIn()).containsExactly("com.bar", 1L, "com.foo", 2L);
+  }
+
+  @Test
+  public void testFanIn_isBounded() {
+    BackendMetrics metrics = new BackendMetrics();
+
+    for (int n = 0; n < 10_000; n++) {
+      metrics.recordLogger("com.foo.Class" + n);
+    }
+    metrics.recordLogger("com.foo.Class0");
+
+    // All loggers are counted, but only a limited number of backend names are tracked.
+    assertThat(metrics.getLoggerCount()).isEqualTo(10_001L);
+    assertThat(metrics.getBackendNameFanIn()).hasSize(4096);
+    assertThat(metrics.getBackendNameFanIn().get("com.foo.Class0")).isEqualTo(2L);
+  }
+
+  @Test
+  public void testClearedReferences() {
+    BackendMetrics metrics = new BackendMetrics();
+
+    metrics.recordCacheEntryAdded();
+    metrics.recordCacheEntryAdded();
+    metrics.recordClearedReference(true);
+    // A reference which was already evicted or replaced doesn't affect the cache size.
+    metrics.recordClearedReference(false);
+
+    assertThat(metrics.getClearedReferenceCount()).isEqualTo(2L);
+    assertThat(metrics.getCachedBackendCount()).isEqualTo(1L);
+  }
+
+  @Test
+  public void testCacheHitRatio_noRequests() {
+    assertThat(new BackendMetrics().getCacheHitRatio()).isEqualTo(0.0);
+  }
+
+  @Test
+  public void testRegister() throws Exception {
+    BackendMetrics metrics = new BackendMetrics();
+    metrics.recordLogger("com.foo");
+
+    metrics.register("BackendMetricsTest");
+
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name =
+        new ObjectName("net.goui.flogger:type=BackendMetrics,name=\"BackendMetricsTest\"");
+    try {
+      assertThat(server.getAttribute(name, "LoggerCount")).isEqualTo(1L);
+    } finally {
+      server.unregisterMBean(name);
+    }
+  }
+}
@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.backend.common;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ConfigVersionTest {
+  @Test
+  public void testCurrent_stableUntilInvalidated() {
+    Object version = ConfigVersion.current();
+    assertThat(ConfigVersion.current()).isSameInstanceAs(version);
+
+    ConfigVersion.invalidate();
+    Object newVersion = ConfigVersion.current();
+    assertThat(newVersion).isNotSameInstanceAs(version);
+    assertThat(ConfigVersion.current()).isSameInstanceAs(newVersion);
+  }
+
+  @Test
+  public void testCurrent_visibleToOtherThreads() throws InterruptedException {
+    ConfigVersion.invalidate();
+    Object version = ConfigVersion.current();
+    Object[] seen = new Object[1];
+    Thread thread = new Thread(() -> seen[0] = ConfigVersion.current());
+    thread.start();
+    thread.join();
+    assertThat(seen[0]).isSameInstanceAs(version);
+  }
+}
@@ -17,6 +17,7 @@ import static org.junit.Assert.*;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.junit.Test;
@@ -214,6 +215,52 @@ public class DefaultNamingStrategyTest {
     assertThat(strategy.getBackendName("aaa.bbb.$Class")).isEqualTo("aaa.bbb.$Class");
   }
 
+  @Test
+  public void getBackendName_manyRoots() {
+    // There's no limit on the number of roots (previously this was limited to 65535).
+    int rootCount = 100_000;
+    Map<String, String> map = new HashMap<>();
+    map.put("roots.size", Integer.toString(rootCount + 1));
+    for (int n = 0; n < rootCount; n++) {
+      map.put("roots." + n, "com.pkg" + (n % 100) + ".sub" + n);
+    }
+    map.put("roots." + rootCount, "com.pkg42.*");
+    DefaultNamingStrategy strategy = new DefaultNamingStrategy(Options.of(map::get));
+
+    // The deepest matching root is always used.
+    assertThat(strategy.getBackendName("com.pkg7.sub12307.foo.Class"))
+        .isEqualTo("com.pkg7.sub12307");
+    assertThat(strategy.getBackendName("com.pkg42.sub99942.Class"))
+        .isEqualTo("com.pkg42.sub99942");
+    assertThat(strategy.getBackendName("com.pkg42.other.Class")).isEqualTo("com.pkg42.other");
+    // Partial segment matches are not matches.
+    assertThat(strategy.getBackendName("com.pkg7.sub1230.Class"))
+        .isEqualTo("com.pkg7.sub1230.Class");
+    assertThat(strategy.getBackendName("com.pkg7.sub123077.Class"))
+        .isEqualTo("com.pkg7.sub123077.Class");
+  }
+
+  @Test
+  public void getRootNames() {
+    Options opts =
+        options(
+            kvp("roots.size", "3"),
+            kvp("roots.0", "com.foo.*.*"),
+            kvp("roots.1", "com.bar"),
+            kvp("roots.2", "net.system"),
+            kvp("system_roots.size", "3"),
+            kvp("system_roots.0", ""),
+            kvp("system_roots.1", "net.system"),
+            kvp("system_roots.2", "org.system"));
+
+    DefaultNamingStrategy strategy = new DefaultNamingStrategy(opts);
+
+    // Wildcards are removed, and the unnamed system root is ignored.
+    assertThat(strategy.getRootNames())
+        .containsExactly("com.foo", "com.bar", "net.system", "org.system")
+        .inOrder();
+  }
+
   @Test
   public void getBackendName_badOptions() {
     IllegalArgumentException badRetain =
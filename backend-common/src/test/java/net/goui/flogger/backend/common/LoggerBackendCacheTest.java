@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.backend.common;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import net.goui.flogger.backend.common.AbstractBackendFactoryTest.FakeBackend;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class LoggerBackendCacheTest {
+  @Test
+  public void testCaching() {
+    LoggerBackendCache<FakeBackend> cache = new LoggerBackendCache<>(FakeBackend::new);
+
+    FakeBackend foo = cache.getBackend("foo");
+    FakeBackend bar = cache.getBackend("bar");
+    assertThat(foo.getLoggerName()).isEqualTo("foo");
+    assertThat(cache.getBackend("foo")).isSameInstanceAs(foo);
+    assertThat(cache.getBackend("bar")).isSameInstanceAs(bar);
+    assertThat(cache.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void testMaxSize_evictsLeastRecentlyUsed() {
+    LoggerBackendCache<FakeBackend> cache =
+        new LoggerBackendCache<>(FakeBackend::new, 2, Set.of(), new BackendMetrics());
+
+    FakeBackend foo = cache.getBackend("foo");
+    FakeBackend bar = cache.getBackend("bar");
+    // Accessing "foo" makes "bar" the least recently used entry.
+    assertThat(cache.getBackend("foo")).isSameInstanceAs(foo);
+    FakeBackend baz = cache.getBackend("baz");
+    assertThat(cache.size()).isEqualTo(2);
+
+    assertThat(cache.getBackend("foo")).isSameInstanceAs(foo);
+    assertThat(cache.getBackend("baz")).isSameInstanceAs(baz);
+    // The evicted backend is still usable, but is no longer shared.
+    assertThat(cache.getBackend("bar")).isNotSameInstanceAs(bar);
+  }
+
+  @Test
+  public void testPinnedNames() {
+    LoggerBackendCache<FakeBackend> cache =
+        new LoggerBackendCache<>(FakeBackend::new, 1, Set.of("pinned"), new BackendMetrics());
+
+    FakeBackend pinned = cache.getBackend("pinned");
+    FakeBackend foo = cache.getBackend("foo");
+    FakeBackend bar = cache.getBackend("bar");
+    // Pinned backends don't count towards the maximum size, and are never evicted.
+    assertThat(cache.size()).isEqualTo(1);
+    assertThat(cache.getBackend("pinned")).isSameInstanceAs(pinned);
+    assertThat(cache.getBackend("bar")).isSameInstanceAs(bar);
+    assertThat(cache.getBackend("foo")).isNotSameInstanceAs(foo);
+  }
+
+  @Test
+  public void testMetrics() {
+    BackendMetrics metrics = new BackendMetrics();
+    LoggerBackendCache<FakeBackend> cache =
+        new LoggerBackendCache<>(FakeBackend::new, 2, Set.of("pinned"), metrics);
+
+    cache.getBackend("pinned");
+    cache.getBackend("pinned");
+    cache.getBackend("foo");
+    cache.getBackend("bar");
+    cache.getBackend("foo");
+    // Evicts "bar".
+    cache.getBackend("baz");
+
+    assertThat(metrics.getCacheHitCount()).isEqualTo(2L);
+    assertThat(metrics.getCacheMissCount()).isEqualTo(4L);
+    assertThat(metrics.getCacheHitRatio()).isEqualTo(2.0 / 6.0);
+    assertThat(metrics.getCacheEvictionCount()).isEqualTo(1L);
+    // Two weak referenced entries and one pinned entry.
+    assertThat(metrics.getCachedBackendCount()).isEqualTo(3L);
+  }
+
+  @Test
+  public void testMetrics_discardedBackendsNotCounted() {
+    BackendMetrics metrics = new BackendMetrics();
+    AtomicReference<LoggerBackendCache<FakeBackend>> cache = new AtomicReference<>();
+    AtomicBoolean isFirst = new AtomicBoolean(true);
+    Function<String, FakeBackend> newBackendFn =
+        name -> {
+          metrics.recordBackend();
+          // Simulates another thread adding the same backend while this one is being created.
+          if (isFirst.getAndSet(false)) {
+            cache.get().getBackend(name);
+          }
+          return new FakeBackend(name);
+        };
+    cache.set(new LoggerBackendCache<>(newBackendFn, 0, Set.of(), metrics));
+
+    FakeBackend foo = cache.get().getBackend("foo");
+    assertThat(cache.get().getBackend("foo")).isSameInstanceAs(foo);
+    assertThat(metrics.getBackendCount()).isEqualTo(1L);
+    assertThat(metrics.getCachedBackendCount()).isEqualTo(1L);
+  }
+
+  @Test
+  public void testBadMaxSize() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new LoggerBackendCache<>(FakeBackend::new, -1, Set.of(), new BackendMetrics()));
+  }
+}
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.backend.common;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.flogger.LogSite;
+import com.google.common.flogger.testing.FakeLogSite;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class MessageBuffersTest {
+  @Test
+  public void testBufferReuse() {
+    StringBuilder buffer = MessageBuffers.acquire(LogSite.INVALID);
+    buffer.append("Hello World");
+    MessageBuffers.release(LogSite.INVALID, buffer);
+
+    StringBuilder reused = MessageBuffers.acquire(LogSite.INVALID);
+    try {
+      assertThat(reused).isSameInstanceAs(buffer);
+      assertThat(reused.length()).isEqualTo(0);
+    } finally {
+      MessageBuffers.release(LogSite.INVALID, reused);
+    }
+  }
+
+  @Test
+  public void testReentrantAcquire() {
+    StringBuilder outer = MessageBuffers.acquire(LogSite.INVALID);
+    try {
+      outer.append("outer");
+      StringBuilder inner = MessageBuffers.acquire(LogSite.INVALID);
+      assertThat(inner).isNotSameInstanceAs(outer);
+      MessageBuffers.release(LogSite.INVALID, inner);
+      // Releasing the inner buffer must not affect the outer one.
+      assertThat(outer.toString()).isEqualTo("outer");
+    } finally {
+      MessageBuffers.release(LogSite.INVALID, outer);
+    }
+  }
+
+  @Test
+  public void testLargeBuffersAreDiscarded() {
+    StringBuilder buffer = MessageBuffers.acquire(LogSite.INVALID);
+    buffer.append("x".repeat(MessageBuffers.DEFAULT_MAX_CAPACITY + 1));
+    MessageBuffers.release(LogSite.INVALID, buffer);
+
+    StringBuilder replacement = MessageBuffers.acquire(LogSite.INVALID);
+    MessageBuffers.release(LogSite.INVALID, replacement);
+    assertThat(replacement).isNotSameInstanceAs(buffer);
+  }
+
+  @Test
+  public void testReadMaxCapacity() {
+    String name = "flogger.message_buffer.max_capacity";
+    assertThat(MessageBuffers.readMaxCapacity(key -> null))
+        .isEqualTo(MessageBuffers.DEFAULT_MAX_CAPACITY);
+    assertThat(MessageBuffers.readMaxCapacity(key -> key.equals(name) ? "100" : null))
+        .isEqualTo(100);
+    assertThat(MessageBuffers.readMaxCapacity(key -> key.equals(name) ? "0" : null)).isEqualTo(0);
+
+    // Invalid values are reported (rather than preventing logging) and the default is used.
+    assertThat(MessageBuffers.readMaxCapacity(key -> key.equals(name) ? "-1" : null))
+        .isEqualTo(MessageBuffers.DEFAULT_MAX_CAPACITY);
+    assertThat(MessageBuffers.readMaxCapacity(key -> key.equals(name) ? "lots" : null))
+        .isEqualTo(MessageBuffers.DEFAULT_MAX_CAPACITY);
+  }
+
+  @Test
+  public void testLengthEstimate() {
+    LogSite logSite = FakeLogSite.create("com.example.Foo", "estimate", 123, "Foo.java");
+    assertThat(MessageBuffers.getEstimatedLength(logSite)).isEqualTo(-1);
+
+    formatWithLength(logSite, 1000);
+    assertThat(MessageBuffers.getEstimatedLength(logSite)).isEqualTo(1000);
+    // Longer messages increase the estimate immediately.
+    formatWithLength(logSite, 2000);
+    assertThat(MessageBuffers.getEstimatedLength(logSite)).isEqualTo(2000);
+    // Shorter messages decay the estimate slowly.
+    formatWithLength(logSite, 1000);
+    assertThat(MessageBuffers.getEstimatedLength(logSite)).isEqualTo(1875);
+
+    // New buffers are sized according to the estimate, even if the thread buffer is in use.
+    StringBuilder outer = MessageBuffers.acquire(LogSite.INVALID);
+    try {
+      StringBuilder buffer = MessageBuffers.acquire(logSite);
+      assertThat(buffer.capacity()).isAtLeast(1875);
+      MessageBuffers.release(logSite, buffer);
+    } finally {
+      MessageBuffers.release(LogSite.INVALID, outer);
+    }
+  }
+
+  private static void formatWithLength(LogSite logSite, int length) {
+    StringBuilder buffer = MessageBuffers.acquire(logSite);
+    try {
+      buffer.append("x".repeat(length));
+    } finally {
+      MessageBuffers.release(logSite, buffer);
+    }
+  }
+}
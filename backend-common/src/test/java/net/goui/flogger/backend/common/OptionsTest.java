@@ -16,7 +16,9 @@ import static org.junit.Assert.assertThrows;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.junit.Test;
@@ -288,6 +290,43 @@ public class OptionsTest {
     assertThat(opts.getValue("foo.missing", String::trim)).isEmpty();
   }
 
+  @Test
+  public void snapshot() {
+    Map<String, String> map = new HashMap<>();
+    map.put("foo", "@bar");
+    map.put("bar.x", "42");
+    map.put("bar.list.size", "2");
+    map.put("bar.list.0", "one");
+    map.put("bar.list.1", "two");
+    List<String> lookups = new ArrayList<>();
+    Options opts =
+        Options.of(
+                name -> {
+                  lookups.add(name);
+                  return map.get(name);
+                })
+            .snapshot();
+    assertThat(opts.snapshot()).isSameInstanceAs(opts);
+
+    Options foo = opts.getOptions("foo");
+    assertThat(foo.getLong("x", 0)).isEqualTo(42);
+    assertThat(foo.getStringArray("list")).containsExactly("one", "two").inOrder();
+    assertThat(foo.get("missing")).isEmpty();
+    int lookupCount = lookups.size();
+
+    // Resolved values (including missing values) are cached and shared with derived options.
+    assertThat(opts.getLong("foo.x", 0)).isEqualTo(42);
+    assertThat(foo.getString("x", "")).isEqualTo("42");
+    assertThat(foo.getStringArray("list")).containsExactly("one", "two").inOrder();
+    assertThat(opts.getOptions("foo").get("missing")).isEmpty();
+    assertThat(lookups).hasSize(lookupCount);
+
+    // A snapshot does not see subsequent changes to underlying values.
+    map.put("bar.x", "0");
+    assertThat(foo.getLong("x", -1)).isEqualTo(42);
+    assertThat(Options.of(map::get).getLong("foo.x", -1)).isEqualTo(0);
+  }
+
   private static Map.Entry<String, String> kvp(String key, String value) {
     return Maps.immutableEntry(key, value);
   }
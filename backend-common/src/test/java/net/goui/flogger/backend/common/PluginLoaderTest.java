@@ -108,6 +108,57 @@ public class PluginLoaderTest {
     assertThat(e).hasMessageThat().contains(PluginLoaderTest.InitGoBoom.class.getName());
   }
 
+  @Test
+  public void instantiate_errorNotWrapped() {
+    ImmutableMap<String, String> opts = ImmutableMap.of("impl", InitThrowsError.class.getName());
+    Map<String, Function<Options, TestPlugin>> defaultPlugins =
+        Map.of(DEFAULT_PLUGIN_NAME, DefaultPlugin::new);
+
+    Error e =
+        assertThrows(
+            AssertionError.class,
+            () ->
+                PluginLoader.instantiate(TestPlugin.class, Options.of(opts::get), defaultPlugins));
+    assertThat(e).hasMessageThat().isEqualTo("Fatal!!");
+  }
+
+  @Test
+  public void instantiate_pluginProvider() {
+    ImmutableMap<String, String> opts = ImmutableMap.of("impl", "named", "value", "provided");
+    Map<String, Function<Options, TestPlugin>> defaultPlugins =
+        Map.of(DEFAULT_PLUGIN_NAME, DefaultPlugin::new);
+
+    TestPlugin plugin =
+        PluginLoader.instantiate(TestPlugin.class, Options.of(opts::get), defaultPlugins);
+    assertThat(plugin).isInstanceOf(NamedPlugin.class);
+    assertThat(((NamedPlugin) plugin).value).isEqualTo("provided");
+
+    // Provider names are scoped to the plugin type.
+    RuntimeException e =
+        assertThrows(
+            FloggerPluginException.class,
+            () ->
+                PluginLoader.instantiate(
+                    NamingStrategy.class, Options.of(opts::get), Map.of()));
+    assertThat(e).hasMessageThat().contains("No class found");
+  }
+
+  @Test
+  public void instantiate_duplicateProviders() {
+    ImmutableMap<String, String> opts = ImmutableMap.of("impl", "duplicate");
+    Map<String, Function<Options, TestPlugin>> defaultPlugins =
+        Map.of(DEFAULT_PLUGIN_NAME, DefaultPlugin::new);
+
+    RuntimeException e =
+        assertThrows(
+            FloggerPluginException.class,
+            () ->
+                PluginLoader.instantiate(TestPlugin.class, Options.of(opts::get), defaultPlugins));
+    assertThat(e).hasMessageThat().contains("Multiple Flogger plugin providers for 'duplicate'");
+    assertThat(e).hasMessageThat().contains(DuplicatePluginProvider.class.getName());
+    assertThat(e).hasMessageThat().contains(OtherDuplicatePluginProvider.class.getName());
+  }
+
   static final class NotAPlugin {
     public NotAPlugin(Options unused) {}
   }
@@ -131,4 +182,54 @@ public class PluginLoaderTest {
       throw new RuntimeException("Kaboom!!");
     }
   }
+
+  static final class InitThrowsError implements TestPlugin {
+    public InitThrowsError(Options unused) {
+      throw new AssertionError("Fatal!!");
+    }
+  }
+
+  static final class NamedPlugin implements TestPlugin {
+    final String value;
+
+    NamedPlugin(Options options) {
+      this.value = options.getString("value", "");
+    }
+  }
+
+  public static final class NamedPluginProvider implements PluginProvider<TestPlugin> {
+    @Override
+    public Class<TestPlugin> getPluginType() {
+      return TestPlugin.class;
+    }
+
+    @Override
+    public String getName() {
+      return "named";
+    }
+
+    @Override
+    public TestPlugin create(Options options) {
+      return new NamedPlugin(options);
+    }
+  }
+
+  public static class DuplicatePluginProvider implements PluginProvider<TestPlugin> {
+    @Override
+    public Class<TestPlugin> getPluginType() {
+      return TestPlugin.class;
+    }
+
+    @Override
+    public String getName() {
+      return "duplicate";
+    }
+
+    @Override
+    public TestPlugin create(Options options) {
+      return new DefaultPlugin(options);
+    }
+  }
+
+  public static final class OtherDuplicatePluginProvider extends DuplicatePluginProvider {}
 }
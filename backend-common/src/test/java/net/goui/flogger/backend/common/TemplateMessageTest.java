@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.backend.common;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.flogger.testing.FakeLogData;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class TemplateMessageTest {
+  @Test
+  public void testFrom_templateMessage() {
+    TestTemplate template = new TestTemplate(ImmutableList.of("x=", ", y=", ""), 23, "foo");
+    FakeLogData data = FakeLogData.withPrintfStyleArgs("%s", template);
+
+    assertThat(TemplateMessage.from(data)).isSameInstanceAs(template);
+    assertThat(appendFormattedMessage(data)).isEqualTo("x=23, y=foo");
+  }
+
+  @Test
+  public void testFrom_otherMessages() {
+    TestTemplate template = new TestTemplate(ImmutableList.of("x=", ""), 23);
+
+    FakeLogData literal = FakeLogData.of("Hello World");
+    assertThat(TemplateMessage.from(literal)).isNull();
+    assertThat(appendFormattedMessage(literal)).isEqualTo("Hello World");
+
+    FakeLogData notTemplate = FakeLogData.withPrintfStyleArgs("%s", "Hello World");
+    assertThat(TemplateMessage.from(notTemplate)).isNull();
+    assertThat(appendFormattedMessage(notTemplate)).isEqualTo("Hello World");
+
+    // Template messages are only recognized as the single argument of a "%s" message.
+    FakeLogData otherFormat = FakeLogData.withPrintfStyleArgs("Message: %s", template);
+    assertThat(TemplateMessage.from(otherFormat)).isNull();
+    assertThat(appendFormattedMessage(otherFormat)).isEqualTo("Message: x=23");
+  }
+
+  @Test
+  public void testAppendFormattedMessage_maxLength_printfArguments() {
+    Object notFormatted =
+        new Object() {
+          @Override
+          public String toString() {
+            throw new AssertionError("arguments beyond the limit must not be formatted");
+          }
+        };
+    FakeLogData data =
+        FakeLogData.withPrintfStyleArgs("%s-%s-%s", "abcdef", "ghijkl", notFormatted);
+    StringBuilder buffer = new StringBuilder("prefix:");
+
+    // Formatting stops once the limit is exceeded (the caller truncates the appended text).
+    TemplateMessage.appendFormattedMessage(data, buffer, 10);
+    assertThat(buffer.toString()).startsWith("prefix:abcdef-ghijkl");
+
+    // Messages within the limit are formatted exactly as normal.
+    data = FakeLogData.withPrintfStyleArgs("%s-%d", "abc", 42, "unused");
+    assertThat(TemplateMessage.appendFormattedMessage(data, new StringBuilder(), 100).toString())
+        .isEqualTo(appendFormattedMessage(data));
+  }
+
+  private static String appendFormattedMessage(FakeLogData data) {
+    return TemplateMessage.appendFormattedMessage(data, new StringBuilder()).toString();
+  }
+
+  private static final class TestTemplate implements TemplateMessage {
+    private final List<String> fragments;
+    private final List<Object> values;
+
+    TestTemplate(List<String> fragments, Object... values) {
+      this.fragments = fragments;
+      this.values = ImmutableList.copyOf(values);
+    }
+
+    @Override
+    public List<String> getFragments() {
+      return fragments;
+    }
+
+    @Override
+    public List<Object> getValues() {
+      return values;
+    }
+
+    @Override
+    public void appendTo(StringBuilder buffer) {
+      buffer.append(fragments.get(0));
+      for (int n = 0; n < values.size(); n++) {
+        buffer.append(values.get(n)).append(fragments.get(n + 1));
+      }
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder buffer = new StringBuilder();
+      appendTo(buffer);
+      return buffer.toString();
+    }
+  }
+}
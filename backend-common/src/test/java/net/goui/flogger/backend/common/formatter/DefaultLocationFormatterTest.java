@@ -13,6 +13,7 @@ package net.goui.flogger.backend.common.formatter;
 import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.*;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.flogger.backend.Metadata;
 import com.google.common.flogger.backend.MetadataProcessor;
 import com.google.common.flogger.testing.FakeLogData;
@@ -31,6 +32,38 @@ public class DefaultLocationFormatterTest {
     assertThat(fmt.format(data, noMetadata())).isEqualTo("com.foo.bar.Class#someMethod");
   }
 
+  @Test
+  public void testClassNameFormat() {
+    FakeLogData data =
+        FakeLogData.of("<message>")
+            .setLogSite(FakeLogSite.create("com.foo.bar.Class$Inner", "someMethod", 123, null));
+
+    assertThat(formatWithOption("class_name", "full", data))
+        .isEqualTo("com.foo.bar.Class$Inner#someMethod");
+    assertThat(formatWithOption("class_name", "abbreviated", data))
+        .isEqualTo("c.f.b.Class$Inner#someMethod");
+    assertThat(formatWithOption("class_name", "simple", data)).isEqualTo("Class$Inner#someMethod");
+  }
+
+  @Test
+  public void testShowSource() {
+    FakeLogData data =
+        FakeLogData.of("<message>")
+            .setLogSite(FakeLogSite.create("com.foo.bar.Class", "someMethod", 123, "Class.java"));
+
+    assertThat(formatWithOption("show_source", "true", data))
+        .isEqualTo("com.foo.bar.Class#someMethod(Class.java:123)");
+    // Formatting is cached per log site, but must be repeatable.
+    DefaultLocationFormatter fmt = new DefaultLocationFormatter(Options.of(k -> null));
+    assertThat(fmt.format(data, noMetadata())).isEqualTo("com.foo.bar.Class#someMethod");
+    assertThat(fmt.format(data, noMetadata())).isEqualTo("com.foo.bar.Class#someMethod");
+  }
+
+  private static String formatWithOption(String name, String value, FakeLogData data) {
+    ImmutableMap<String, String> opts = ImmutableMap.of(name, value);
+    return new DefaultLocationFormatter(Options.of(opts::get)).format(data, noMetadata());
+  }
+
   private static MetadataProcessor noMetadata() {
     return MetadataProcessor.forScopeAndLogSite(Metadata.empty(), Metadata.empty());
   }
@@ -13,13 +13,16 @@ package net.goui.flogger.backend.common.formatter;
 import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.assertThrows;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.flogger.MetadataKey;
 import com.google.common.flogger.backend.LogData;
 import com.google.common.flogger.backend.Metadata;
 import com.google.common.flogger.backend.MetadataProcessor;
 import com.google.common.flogger.testing.FakeLogData;
+import java.util.List;
 import net.goui.flogger.backend.common.Options;
+import net.goui.flogger.backend.common.TemplateMessage;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -37,6 +40,7 @@ public class DefaultPatternFormatterTest {
             kvh.handle("hex", "0x" + Integer.toHexString(value));
           }
         };
+    public static final MetadataKey<Object> OBJ_KEY = MetadataKey.single("obj", Object.class);
   }
 
   @Test
@@ -124,6 +128,58 @@ public class DefaultPatternFormatterTest {
     assertThat(fmt.format(log, toMetadata(log))).isEqualTo("<message> 42=\"0x2a\"");
   }
 
+  @Test
+  public void testFormatting_customKeysNotRetainedBetweenMessages() {
+    ImmutableMap<String, String> opts =
+        ImmutableMap.of(
+            "pattern",
+            "%{key.foo/foo=/ }%{key.bar/bar=/ }%{message}",
+            "metadata.key.foo",
+            Key.class.getName() + "#FOO_KEY",
+            "metadata.key.bar",
+            Key.class.getName() + "#BAR_KEY");
+    DefaultPatternFormatter fmt = new DefaultPatternFormatter(Options.of(opts::get));
+
+    FakeLogData first =
+        FakeLogData.of("<first>").addMetadata(Key.FOO_KEY, "Hello").addMetadata(Key.BAR_KEY, 42);
+    assertThat(fmt.format(first, toMetadata(first))).isEqualTo("foo=\"Hello\" bar=42 <first>");
+
+    // Extracted values are reused for each message, but must not leak between messages.
+    FakeLogData second = FakeLogData.of("<second>").addMetadata(Key.BAR_KEY, 23);
+    assertThat(fmt.format(second, toMetadata(second))).isEqualTo("bar=23 <second>");
+    FakeLogData third = FakeLogData.of("<third>");
+    assertThat(fmt.format(third, toMetadata(third))).isEqualTo("<third>");
+  }
+
+  @Test
+  public void testFormatting_customKeysReentrant() {
+    ImmutableMap<String, String> opts =
+        ImmutableMap.of(
+            "pattern",
+            "%{key.obj/obj=/ }%{key.bar/bar=/ }%{message}",
+            "metadata.key.obj",
+            Key.class.getName() + "#OBJ_KEY",
+            "metadata.key.bar",
+            Key.class.getName() + "#BAR_KEY");
+    DefaultPatternFormatter fmt = new DefaultPatternFormatter(Options.of(opts::get));
+    // A value which formats another log message (with the same formatter) when it is formatted.
+    Object reentrantValue =
+        new Object() {
+          @Override
+          public String toString() {
+            FakeLogData inner = FakeLogData.of("<inner>").addMetadata(Key.BAR_KEY, 1);
+            return fmt.format(inner, toMetadata(inner));
+          }
+        };
+
+    FakeLogData outer =
+        FakeLogData.of("<outer>")
+            .addMetadata(Key.OBJ_KEY, reentrantValue)
+            .addMetadata(Key.BAR_KEY, 42);
+    assertThat(fmt.format(outer, toMetadata(outer)))
+        .isEqualTo("obj=\"bar=1 <inner>\" bar=42 <outer>");
+  }
+
   @Test
   public void testFormatting_withRepeatedMetadata() {
     ImmutableMap<String, String> opts = ImmutableMap.of("pattern", "%{message}%{metadata/ [/]}");
@@ -180,6 +236,74 @@ public class DefaultPatternFormatterTest {
     assertThat(fmt.format(log, toMetadata(log))).isEqualTo("<message> {bar=42}");
   }
 
+  @Test
+  public void testFormatting_templateMessage() {
+    ImmutableMap<String, String> opts = ImmutableMap.of("pattern", "<%{message}>");
+    DefaultPatternFormatter fmt = new DefaultPatternFormatter(Options.of(opts::get));
+    // Template messages are appended directly, and not via toString().
+    TemplateMessage template =
+        new TemplateMessage() {
+          @Override
+          public List<String> getFragments() {
+            return ImmutableList.of("x=", "");
+          }
+
+          @Override
+          public List<Object> getValues() {
+            return ImmutableList.of(42);
+          }
+
+          @Override
+          public void appendTo(StringBuilder buffer) {
+            buffer.append("x=42");
+          }
+
+          @Override
+          public String toString() {
+            throw new AssertionError("should not be called");
+          }
+        };
+    FakeLogData log = FakeLogData.withPrintfStyleArgs("%s", template);
+    assertThat(fmt.format(log, toMetadata(log))).isEqualTo("<x=42>");
+  }
+
+  @Test
+  public void testFormatting_maxMessageChars() {
+    ImmutableMap<String, String> opts =
+        ImmutableMap.of("pattern", "<%{message}>%{metadata/ [/]}", "max_message_chars", "10");
+    DefaultPatternFormatter fmt = new DefaultPatternFormatter(Options.of(opts::get));
+
+    FakeLogData log = FakeLogData.of("0123456789");
+    assertThat(fmt.format(log, toMetadata(log))).isEqualTo("<0123456789>");
+
+    log = FakeLogData.of("0123456789ABCDEF").addMetadata(Key.FOO_KEY, "Hello");
+    assertThat(fmt.format(log, toMetadata(log))).isEqualTo("<0123456789...> [foo=\"Hello\"]");
+
+    log = FakeLogData.withPrintfStyleArgs("%s-%s", "abcdef", "ghijkl");
+    assertThat(fmt.format(log, toMetadata(log))).isEqualTo("<abcdef-ghi...>");
+  }
+
+  @Test
+  public void testFormatting_maxMetadataValueChars() {
+    ImmutableMap<String, String> opts =
+        ImmutableMap.of(
+            "pattern",
+            "%{key.foo/foo=/ }%{message}%{metadata/ [/]}",
+            "metadata.key.foo",
+            Key.class.getName() + "#FOO_KEY",
+            "metadata.max_value_chars",
+            "3");
+    DefaultPatternFormatter fmt = new DefaultPatternFormatter(Options.of(opts::get));
+
+    FakeLogData log =
+        FakeLogData.of("<message>")
+            .addMetadata(Key.FOO_KEY, "Hello")
+            .addMetadata(Key.BAR_KEY, 123456)
+            .addMetadata(Key.OBJ_KEY, "World");
+    String expected = "foo=\"Hel...\" <message> [bar=123456 obj=\"Wor...\"]";
+    assertThat(fmt.format(log, toMetadata(log))).isEqualTo(expected);
+  }
+
   @Test
   public void testFormatting_badPatterns() {
     // Since message is non-optional, it has no prefix/suffix.
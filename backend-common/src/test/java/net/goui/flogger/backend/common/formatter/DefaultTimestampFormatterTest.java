@@ -23,6 +23,13 @@ import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import net.goui.flogger.backend.common.Options;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -87,6 +94,94 @@ public class DefaultTimestampFormatterTest {
         .doesNotContain(ISO_LOCAL_DATE_TIME.format(utcDateTime));
   }
 
+  @Test
+  public void testDefaultIsoFormat_fractionalSeconds() {
+    DefaultTimestampFormatter fmt = new DefaultTimestampFormatter(Options.of(k -> null));
+    long epochSeconds = Instant.parse("2024-03-01T12:34:56Z").getEpochSecond();
+    // ISO instants emit 0, 3, 6 or 9 digits of fractional seconds as needed.
+    for (int nanos : new int[] {0, 100_000_000, 123_000_000, 123_400_000, 123_456_700, 1}) {
+      Instant instant = Instant.ofEpochSecond(epochSeconds, nanos);
+      FakeLogData data = FakeLogData.of("<message>").setTimestampNanos(asTimestamp(instant));
+      assertThat(fmt.format(data, noMetadata())).isEqualTo(ISO_INSTANT.format(instant));
+    }
+  }
+
+  @Test
+  public void testCachedFormatting_matchesDateTimeFormatter() {
+    String[] patterns = {
+      "yyyy-MM-dd HH:mm:ss.SSS",
+      "HH:mm:ss.SSSSSSSSS XXX",
+      "HH:mm:ss",
+      "HH:mm",
+      "HH:mm.S",
+      "ss.nnnnnnnnn",
+      "ss.n",
+      "N",
+      "A",
+    };
+    // Asia/Kolkata has a half hour offset and Europe/Paris (in 1900) has an offset of 9m21s.
+    String[] zones = {"UTC", "CET", "Asia/Kolkata", "Europe/Paris"};
+    long[] startSeconds = {
+      Instant.parse("2024-03-31T00:59:58Z").getEpochSecond(), // CET daylight saving change.
+      Instant.parse("1900-01-01T00:00:00Z").getEpochSecond(),
+      -1,
+    };
+    for (String pattern : patterns) {
+      for (String zone : zones) {
+        ImmutableMap<String, String> opts = ImmutableMap.of("pattern", pattern, "zone_id", zone);
+        DefaultTimestampFormatter fmt = new DefaultTimestampFormatter(Options.of(opts::get));
+        DateTimeFormatter expected = DateTimeFormatter.ofPattern(pattern).withZone(ZoneId.of(zone));
+        for (long start : startSeconds) {
+          // Step through several seconds (including minute boundaries) in uneven increments.
+          for (long nanos = 0; nanos < 125_000_000_000L; nanos += 987_654_321L) {
+            Instant instant = Instant.ofEpochSecond(start).plusNanos(nanos);
+            FakeLogData data = FakeLogData.of("<message>").setTimestampNanos(asTimestamp(instant));
+            assertThat(fmt.format(data, noMetadata())).isEqualTo(expected.format(instant));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testCachedFormatting_threadSafety() throws Exception {
+    ImmutableMap<String, String> opts =
+        ImmutableMap.of("pattern", "yyyy-MM-dd HH:mm:ss.SSSSSS", "zone_id", "UTC");
+    DefaultTimestampFormatter fmt = new DefaultTimestampFormatter(Options.of(opts::get));
+    DateTimeFormatter expected = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
+    long start = Instant.parse("2024-03-01T12:00:00Z").getEpochSecond();
+
+    int threadCount = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    try {
+      List<Future<Integer>> results = new ArrayList<>();
+      for (int t = 0; t < threadCount; t++) {
+        // Each thread uses timestamps in a different second, so the cache is constantly replaced.
+        long threadStart = start + t;
+        results.add(
+            executor.submit(
+                () -> {
+                  int mismatches = 0;
+                  for (int n = 0; n < 10_000; n++) {
+                    Instant instant = Instant.ofEpochSecond(threadStart + 2 * (n % 3), n * 1_001L);
+                    FakeLogData data =
+                        FakeLogData.of("<message>").setTimestampNanos(asTimestamp(instant));
+                    String formatted = fmt.format(data, noMetadata());
+                    if (!formatted.equals(expected.format(instant.atZone(ZoneOffset.UTC)))) {
+                      mismatches++;
+                    }
+                  }
+                  return mismatches;
+                }));
+      }
+      for (Future<Integer> result : results) {
+        assertThat(result.get()).isEqualTo(0);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   private static long asTimestamp(Instant t) {
     return (t.getEpochSecond() * 1_000_000_000) + t.getNano();
   }
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.backend.common.formatter;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.flogger.LogContext;
+import com.google.common.flogger.MetadataKey;
+import com.google.common.flogger.backend.LogData;
+import com.google.common.flogger.backend.Metadata;
+import com.google.common.flogger.backend.MetadataProcessor;
+import com.google.common.flogger.testing.FakeLogData;
+import com.google.common.flogger.testing.FakeLogSite;
+import java.util.logging.Level;
+import net.goui.flogger.backend.common.Options;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class JsonMessageFormatterTest {
+  public static class Key {
+    public static final MetadataKey<String> FOO_KEY = MetadataKey.repeated("foo", String.class);
+    public static final MetadataKey<Integer> BAR_KEY = MetadataKey.single("bar", Integer.class);
+    // A distinct key with the same label as FOO_KEY.
+    public static final MetadataKey<String> OTHER_FOO_KEY = MetadataKey.single("foo", String.class);
+  }
+
+  private static final String LOG_SITE_JSON =
+      "\"class\":\"com.example.Foo\",\"method\":\"doFoo\",\"line\":42,\"file\":\"Foo.java\"";
+
+  @Test
+  public void testFormatting_noMetadata() {
+    JsonMessageFormatter fmt = new JsonMessageFormatter(Options.of(s -> null));
+    FakeLogData log = newLogData("Hello World").setLevel(Level.WARNING);
+
+    assertThat(fmt.format(log, toMetadata(log)))
+        .isEqualTo(
+            "{\"timestamp\":\"1970-01-01T00:00:00Z\",\"level\":\"WARNING\","
+                + "\"logger\":\"com.google.LoggerName\","
+                + LOG_SITE_JSON
+                + ",\"message\":\"Hello World\"}");
+  }
+
+  @Test
+  public void testFormatting_withMetadata() {
+    JsonMessageFormatter fmt = new JsonMessageFormatter(Options.of(s -> null));
+    FakeLogData log =
+        newLogData("Hello World")
+            .addMetadata(Key.FOO_KEY, "first")
+            .addMetadata(Key.FOO_KEY, "second")
+            .addMetadata(Key.BAR_KEY, 23);
+
+    // Repeated metadata is formatted as an array.
+    assertThat(fmt.format(log, toMetadata(log)))
+        .endsWith(
+            ",\"message\":\"Hello World\","
+                + "\"metadata\":{\"foo\":[\"first\",\"second\"],\"bar\":23}}");
+  }
+
+  @Test
+  public void testFormatting_repeatedMetadataShape() {
+    JsonMessageFormatter fmt = new JsonMessageFormatter(Options.of(s -> null));
+    FakeLogData log = newLogData("Hello World").addMetadata(Key.FOO_KEY, "only");
+
+    // Repeatable keys are always formatted as an array, even with only one value.
+    assertThat(fmt.format(log, toMetadata(log)))
+        .endsWith(",\"metadata\":{\"foo\":[\"only\"]}}");
+  }
+
+  @Test
+  public void testFormatting_duplicateLabels() {
+    JsonMessageFormatter fmt = new JsonMessageFormatter(Options.of(s -> null));
+    FakeLogData log =
+        newLogData("Hello World")
+            .addMetadata(Key.FOO_KEY, "first")
+            .addMetadata(Key.BAR_KEY, 23)
+            .addMetadata(Key.OTHER_FOO_KEY, "other");
+
+    // Values for the same label are grouped, so no duplicate names appear in the JSON object.
+    assertThat(fmt.format(log, toMetadata(log)))
+        .endsWith(",\"metadata\":{\"foo\":[\"first\",\"other\"],\"bar\":23}}");
+  }
+
+  @Test
+  public void testFormatting_escaping() {
+    JsonMessageFormatter fmt = new JsonMessageFormatter(Options.of(s -> null));
+    FakeLogData log = newLogData("Say \"Hello\"\n\tWorld").addMetadata(Key.FOO_KEY, "a\\b");
+
+    assertThat(fmt.format(log, toMetadata(log)))
+        .endsWith(
+            ",\"message\":\"Say \\\"Hello\\\"\\n\\tWorld\",\"metadata\":{\"foo\":[\"a\\\\b\"]}}");
+  }
+
+  @Test
+  public void testFormatting_ignoredMetadataAndRenamedFields() {
+    ImmutableMap<String, String> opts =
+        ImmutableMap.of(
+            "metadata.ignore.size", "1",
+            "metadata.ignore.0", Key.class.getName() + "#FOO_KEY",
+            "field.message", "msg",
+            "field.metadata", "\"context\"");
+    JsonMessageFormatter fmt = new JsonMessageFormatter(Options.of(opts::get));
+
+    FakeLogData log = newLogData("Hello World").addMetadata(Key.FOO_KEY, "ignored");
+    assertThat(fmt.format(log, toMetadata(log))).endsWith(",\"msg\":\"Hello World\"}");
+
+    // Field names are escaped.
+    log.addMetadata(Key.BAR_KEY, 23);
+    assertThat(fmt.format(log, toMetadata(log)))
+        .endsWith(",\"msg\":\"Hello World\",\"\\\"context\\\"\":{\"bar\":23}}");
+  }
+
+  @Test
+  public void testFormatting_withCause() {
+    JsonMessageFormatter fmt = new JsonMessageFormatter(Options.of(s -> null));
+    Throwable cause = new IllegalStateException("Oops");
+    FakeLogData log = newLogData("Hello World").addMetadata(LogContext.Key.LOG_CAUSE, cause);
+
+    String json = fmt.format(log, toMetadata(log));
+    // The cause is not formatted as metadata.
+    assertThat(json).doesNotContain("\"metadata\"");
+    assertThat(json).contains(",\"cause\":\"java.lang.IllegalStateException: Oops\\n\\tat ");
+    assertThat(json).endsWith("\"}");
+  }
+
+  private static FakeLogData newLogData(String message) {
+    return FakeLogData.of(message)
+        .setLogSite(FakeLogSite.create("com.example.Foo", "doFoo", 42, "Foo.java"));
+  }
+
+  private static MetadataProcessor toMetadata(LogData logData) {
+    return MetadataProcessor.forScopeAndLogSite(logData.getMetadata(), Metadata.empty());
+  }
+}
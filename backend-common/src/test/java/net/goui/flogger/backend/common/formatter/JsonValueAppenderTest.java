@@ -27,10 +27,43 @@ public class JsonValueAppenderTest {
     assertThat(defaultAppend("xyz")).isEqualTo("\"xyz\"");
     assertThat(defaultAppend("new\nline")).isEqualTo("\"new\\nline\"");
 
+    // Non-finite values are not valid JSON numbers.
+    assertThat(defaultAppend(Double.NaN)).isEqualTo("\"NaN\"");
+    assertThat(defaultAppend(Double.NEGATIVE_INFINITY)).isEqualTo("\"-Infinity\"");
+    assertThat(defaultAppend(Float.POSITIVE_INFINITY)).isEqualTo("\"Infinity\"");
+
     // Don't append anything for null input.
     assertThat(defaultAppend(null)).isEqualTo("");
   }
 
+  @Test
+  public void testJsonAppender_escaping() {
+    assertThat(defaultAppend("\"quoted\\\"")).isEqualTo("\"\\\"quoted\\\\\\\"\"");
+    assertThat(defaultAppend("\t\r\n\b\f")).isEqualTo("\"\\t\\r\\n\\b\\f\"");
+    // Other control characters must be escaped as hex values to produce valid JSON.
+    assertThat(defaultAppend("\u0000x\u001f\u007f")).isEqualTo("\"\\u0000x\\u001f\u007f\"");
+    assertThat(defaultAppend("caf\u00e9")).isEqualTo("\"caf\u00e9\"");
+  }
+
+  @Test
+  public void testEscapeFrom() {
+    StringBuilder out = new StringBuilder("\"no\nescape\": \"a\u0001b\"");
+    assertThat(JsonValueAppender.escapeFrom(out, 14).toString())
+        .isEqualTo("\"no\nescape\": \"a\\u0001b\\\"");
+  }
+
+  @Test
+  public void testJsonAppender_truncation() {
+    JsonValueAppender appender = jsonAppender(5);
+    assertThat(append(appender, "short")).isEqualTo("\"short\"");
+    assertThat(append(appender, "too long")).isEqualTo("\"too l...\"");
+    // Only the retained text is escaped, and surrogate pairs are not split.
+    assertThat(append(appender, "a\nb\nc\nd")).isEqualTo("\"a\\nb\\nc...\"");
+    assertThat(append(appender, "abcd\ud83d\ude00")).isEqualTo("\"abcd...\"");
+    // Non-string values are never truncated.
+    assertThat(append(appender, 1234567890)).isEqualTo("1234567890");
+  }
+
   @Test
   public void testJsonAppender_badToString() {
     Object unexpected =
@@ -46,8 +79,12 @@ public class JsonValueAppenderTest {
   }
 
   static String defaultAppend(Object value) {
+    return append(jsonAppender(), value);
+  }
+
+  static String append(JsonValueAppender appender, Object value) {
     StringBuilder out = new StringBuilder();
-    jsonAppender().accept(out, value);
+    appender.accept(out, value);
     return out.toString();
   }
 }
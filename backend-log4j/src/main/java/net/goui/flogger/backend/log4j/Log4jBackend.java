@@ -13,6 +13,7 @@ package net.goui.flogger.backend.log4j;
 import static net.goui.flogger.backend.log4j.Log4jEventUtil.getLog4jLevel;
 
 import com.google.common.flogger.LogContext;
+import com.google.common.flogger.LogSite;
 import com.google.common.flogger.backend.LogData;
 import com.google.common.flogger.backend.LogMessageFormatter;
 import com.google.common.flogger.backend.LoggerBackend;
@@ -21,24 +22,54 @@ import com.google.common.flogger.backend.Metadata;
 import com.google.common.flogger.backend.MetadataProcessor;
 import com.google.common.flogger.backend.Platform;
 import com.google.errorprone.annotations.concurrent.LazyInit;
+import java.util.Collections;
 import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.logging.Level;
 import javax.annotation.CheckForNull;
+import net.goui.flogger.backend.common.ConfigVersion;
+import net.goui.flogger.backend.common.LogDataSnapshot;
+import net.goui.flogger.backend.common.MessageBuffers;
+import net.goui.flogger.backend.common.TemplateMessage;
 import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.ThreadContext;
 import org.apache.logging.log4j.core.Logger;
+import org.apache.logging.log4j.core.LoggerContext;
 import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.core.impl.MutableLogEvent;
+import org.apache.logging.log4j.core.time.MutableInstant;
+import org.apache.logging.log4j.core.util.Clock;
+import org.apache.logging.log4j.core.util.ClockFactory;
 
 /** Flogger backend integration with Log4J2, using a lazily initialized Log4J logger. */
 final class Log4jBackend extends LoggerBackend {
+  private static final Object[] NO_PARAMETERS = new Object[0];
+  private static final MetadataProcessor EMPTY_METADATA =
+      MetadataProcessor.forScopeAndLogSite(Metadata.empty(), Metadata.empty());
+  private static final Clock CLOCK = ClockFactory.getClock();
+
+  private static final ThreadLocal<ReusableEvent> reusableEvents =
+      ThreadLocal.withInitial(ReusableEvent::new);
+
   private final String backendName;
   // Lazily initialized underlying Log4J logger instance. The LogManager is not required to return
   // the same instance on repeated calls for the same backend name, but they should be equivalent.
   @LazyInit @CheckForNull private Logger logger;
   private final LogMessageFormatter formatter;
+  // Lazily initialized level threshold, valid until the configuration or logger level changes.
+  @LazyInit @CheckForNull private LevelThreshold threshold;
+  // If set, log events are created using per-thread reusable instances.
+  private final boolean reuseEvents;
 
   Log4jBackend(String backendName, LogMessageFormatter formatter) {
+    this(backendName, formatter, false);
+  }
+
+  Log4jBackend(String backendName, LogMessageFormatter formatter, boolean reuseEvents) {
     this.backendName = Objects.requireNonNull(backendName);
     this.formatter = formatter;
+    this.reuseEvents = reuseEvents;
   }
 
   private Logger lazyLogger() {
@@ -52,14 +83,30 @@ final class Log4jBackend extends LoggerBackend {
 
   @Override
   public void log(LogData data) {
+    Metadata scope = Platform.getInjectedMetadata();
+    Metadata logged = data.getMetadata();
     MetadataProcessor metadata =
-        MetadataProcessor.forScopeAndLogSite(Platform.getInjectedMetadata(), data.getMetadata());
+        scope.size() == 0 && logged.size() == 0
+            ? EMPTY_METADATA
+            : MetadataProcessor.forScopeAndLogSite(scope, logged);
 
     Throwable thrown = metadata.getSingleValue(LogContext.Key.LOG_CAUSE);
+    if (reuseEvents) {
+      ReusableEvent reusable = reusableEvents.get();
+      // Avoid corrupting the reusable event if logging is reentrant (e.g. from an appender).
+      if (!reusable.inUse) {
+        reusable.log(lazyLogger(), data, formatter, metadata, thrown);
+        return;
+      }
+    }
+    // Template messages expose their values as structured message parameters.
+    TemplateMessage template = TemplateMessage.from(data);
+    Object[] parameters = template != null ? template.getValues().toArray() : NO_PARAMETERS;
     // Lazy log message which can append directly to an existing buffer.
-    Log4jMessage log4jMessage = new Log4jMessage(b -> formatter.append(data, metadata, b), thrown);
-    Thread currentThread = Thread.currentThread();
-    Log4jLogEvent logEvent =
+    Log4jMessage log4jMessage =
+        new Log4jMessage(
+            data.getLogSite(), b -> formatter.append(data, metadata, b), parameters, thrown);
+    Log4jLogEvent.Builder builder =
         Log4jLogEvent.newBuilder()
             .setLevel(Log4jEventUtil.getLog4jLevel(data.getLevel()))
             .setNanoTime(data.getTimestampNanos())
@@ -69,14 +116,112 @@ final class Log4jBackend extends LoggerBackend {
             .setMessage(log4jMessage)
             // A ThrownProxy is created from this in the built event.
             .setThrown(thrown)
-            .setContextData(Log4jEventUtil.createContextMap(metadata))
-            // This is calculated on demand in the event, but we might be in a different thread.
-            .setThreadName(currentThread.getName())
-            .setThreadPriority(currentThread.getPriority())
-            // Switch to currentThread.threadId() after JDK 19+ is standard.
-            .setThreadId(currentThread.getId())
-            .build();
-    lazyLogger().get().log(logEvent);
+            .setContextData(Log4jEventUtil.createContextMap(metadata));
+    // This is calculated on demand in the event, but we might be in a different thread.
+    if (data instanceof LogDataSnapshot) {
+      // Asynchronous logging, so use the thread and time at which the log statement was made.
+      LogDataSnapshot snapshot = (LogDataSnapshot) data;
+      MutableInstant instant = new MutableInstant();
+      initFromTimestamp(instant, snapshot.getTimestampNanos());
+      builder
+          .setInstant(instant)
+          .setThreadName(snapshot.getThreadName())
+          .setThreadPriority(snapshot.getThreadPriority())
+          .setThreadId(snapshot.getThreadId());
+    } else {
+      Thread currentThread = Thread.currentThread();
+      builder
+          .setThreadName(currentThread.getName())
+          .setThreadPriority(currentThread.getPriority())
+          // Switch to currentThread.threadId() after JDK 19+ is standard.
+          .setThreadId(currentThread.getId());
+    }
+    lazyLogger().get().log(builder.build());
+  }
+
+  /**
+   * Per-thread reusable Log4J event and message, for garbage-free logging (see Log4J's {@code
+   * log4j2.enableThreadlocals} option). In the steady state, log statements without metadata
+   * allocate nothing in this backend.
+   */
+  private static final class ReusableEvent {
+    private final MutableLogEvent event = new MutableLogEvent();
+    private final ReusableLog4jMessage message = new ReusableLog4jMessage();
+    private boolean inUse = false;
+    // Single entry cache, since log statements in loops often repeat the same log site.
+    @CheckForNull private LogSite lastLogSite = null;
+    @CheckForNull private StackTraceElement lastSource = null;
+    @CheckForNull private String lastClassName = null;
+
+    void log(
+        Logger logger,
+        LogData data,
+        LogMessageFormatter formatter,
+        MetadataProcessor metadata,
+        @CheckForNull Throwable thrown) {
+      inUse = true;
+      try {
+        message.set(formatter, data, metadata, thrown);
+        event.setLevel(Log4jEventUtil.getLog4jLevel(data.getLevel()));
+        MutableInstant instant = (MutableInstant) event.getInstant();
+        if (data instanceof LogDataSnapshot) {
+          // Asynchronous logging, so use the time at which the log statement was made.
+          initFromTimestamp(instant, data.getTimestampNanos());
+        } else {
+          // This matches the default timestamp of events created via Log4jLogEvent.Builder.
+          instant.initFrom(CLOCK);
+        }
+        event.setNanoTime(data.getTimestampNanos());
+        event.setLoggerName(data.getLoggerName());
+        updateLogSite(data.getLogSite());
+        event.setLoggerFqcn(lastClassName);
+        event.setSource(lastSource);
+        // The message is formatted into the event's reusable buffer immediately.
+        event.setMessage(message);
+        event.setThrown(thrown);
+        event.setContextData(Log4jEventUtil.createContextMap(metadata));
+        event.setContextStack(ThreadContext.EMPTY_STACK);
+        if (data instanceof LogDataSnapshot) {
+          // Asynchronous logging, so use the thread in which the log statement was made.
+          LogDataSnapshot snapshot = (LogDataSnapshot) data;
+          event.setThreadName(snapshot.getThreadName());
+          event.setThreadPriority(snapshot.getThreadPriority());
+          event.setThreadId(snapshot.getThreadId());
+        } else {
+          Thread currentThread = Thread.currentThread();
+          event.setThreadName(currentThread.getName());
+          event.setThreadPriority(currentThread.getPriority());
+          // Switch to currentThread.threadId() after JDK 19+ is standard.
+          event.setThreadId(currentThread.getId());
+        }
+        logger.get().log(event);
+      } finally {
+        event.clear();
+        message.clear();
+        inUse = false;
+      }
+    }
+
+    // Log site class names are not always cached (injected log sites create a new string for each
+    // call), so the class name and source are both derived once per log site.
+    private void updateLogSite(LogSite logSite) {
+      if (logSite != lastLogSite) {
+        // Template log statements have a unique log site instance, but other log sites might be
+        // recreated for each log statement.
+        if (!logSite.equals(lastLogSite)) {
+          lastClassName = logSite.getClassName();
+          lastSource = Log4jEventUtil.getLog4jSource(logSite);
+        }
+        lastLogSite = logSite;
+      }
+    }
+  }
+
+  // Sets an event's instant from a Flogger timestamp (nanoseconds since the epoch).
+  private static void initFromTimestamp(MutableInstant instant, long timestampNanos) {
+    instant.initFromEpochSecond(
+        Math.floorDiv(timestampNanos, 1_000_000_000L),
+        (int) Math.floorMod(timestampNanos, 1_000_000_000L));
   }
 
   @Override
@@ -91,21 +236,83 @@ final class Log4jBackend extends LoggerBackend {
 
   @Override
   public boolean isLoggable(Level level) {
-    return lazyLogger().isEnabled(getLog4jLevel(level));
+    Object version = ConfigVersion.current();
+    Logger logger = lazyLogger();
+    LevelThreshold localRef = threshold;
+    // Setting a logger's level directly (rather than via the configuration) fires no change event,
+    // so the level itself must also be checked (this is just a field read in Log4J).
+    if (localRef == null || localRef.version != version || localRef.level != logger.getLevel()) {
+      threshold = localRef = LevelThreshold.create(logger, version);
+    }
+    return localRef.filtered
+        ? logger.isEnabled(getLog4jLevel(level))
+        : getLog4jLevel(level).intLevel() <= localRef.level.intLevel();
+  }
+
+  /**
+   * Immutable snapshot of a logger's level threshold, tagged with the configuration version from
+   * which it was derived. This avoids calling into Log4J for every level check, since the threshold
+   * only changes when the configuration is updated, or when a logger's level is set directly via
+   * {@link Logger#setLevel} (which is detected by comparing the snapshot's level instance).
+   */
+  private static final class LevelThreshold {
+    // Contexts to which a listener has been added (weak keys so contexts can be collected).
+    private static final Set<LoggerContext> listenedContexts =
+        Collections.newSetFromMap(Collections.synchronizedMap(new WeakHashMap<>()));
+
+    private final Object version;
+    private final org.apache.logging.log4j.Level level;
+    // If set, level checks must be delegated to the logger (e.g. due to global filters).
+    private final boolean filtered;
+
+    static LevelThreshold create(Logger logger, Object version) {
+      // Listen for changes before reading the level, so no configuration changes are missed.
+      boolean isListening = addConfigListener(logger.getContext());
+      // Logger.isEnabled() uses the level of its logger config, unless a global filter exists.
+      boolean filtered = !isListening || logger.getContext().getConfiguration().getFilter() != null;
+      return new LevelThreshold(version, logger.getLevel(), filtered);
+    }
+
+    private static boolean addConfigListener(LoggerContext context) {
+      if (!listenedContexts.contains(context)) {
+        try {
+          // Called (after loggers are updated) whenever a new configuration is set.
+          context.addPropertyChangeListener(e -> ConfigVersion.invalidate());
+        } catch (LinkageError e) {
+          // The listener API uses "java.beans", which might not be available. Without a listener
+          // thresholds cannot be cached, but level checks still work.
+          return false;
+        }
+        listenedContexts.add(context);
+      }
+      return true;
+    }
+
+    private LevelThreshold(
+        Object version, org.apache.logging.log4j.Level level, boolean filtered) {
+      this.version = version;
+      this.level = level;
+      this.filtered = filtered;
+    }
   }
 
   private static String formatLogErrorMessage(LogData logData, RuntimeException error) {
-    StringBuilder errorMsg =
-        new StringBuilder("LOGGING ERROR: ").append(error.getMessage()).append('\n');
-    int length = errorMsg.length();
+    // Error messages are not tracked by log site, since they are unlike normal log messages.
+    StringBuilder errorMsg = MessageBuffers.acquire(LogSite.INVALID);
     try {
-      appendLogData(logData, errorMsg);
-    } catch (RuntimeException e) {
-      // Reset partially written buffer when an error occurs.
-      errorMsg.setLength(length);
-      errorMsg.append("Cannot append LogData: ").append(e);
+      errorMsg.append("LOGGING ERROR: ").append(error.getMessage()).append('\n');
+      int length = errorMsg.length();
+      try {
+        appendLogData(logData, errorMsg);
+      } catch (RuntimeException e) {
+        // Reset partially written buffer when an error occurs.
+        errorMsg.setLength(length);
+        errorMsg.append("Cannot append LogData: ").append(e);
+      }
+      return errorMsg.toString();
+    } finally {
+      MessageBuffers.release(LogSite.INVALID, errorMsg);
     }
-    return errorMsg.toString();
   }
 
   /** Appends the given {@link LogData} to the given {@link StringBuilder}. */
@@ -18,7 +18,9 @@ import net.goui.flogger.backend.common.AbstractBackendFactory;
 import net.goui.flogger.backend.common.Options;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.config.Configuration;
 import org.apache.logging.log4j.core.lookup.StrLookup;
+import org.apache.logging.log4j.util.Constants;
 
 /**
  * Service API providing Flogger Next integration with Log4j2.
@@ -30,6 +32,17 @@ import org.apache.logging.log4j.core.lookup.StrLookup;
  * <p>To force Flogger to use this class (e.g. if multiple service APIs for {@link BackendFactory}
  * exist), set the system property {@code flogger.backend_factory} to the fully qualified name of
  * this class.
+ *
+ * <h3>Options</h3>
+ *
+ * <p>In addition to the options supported by {@link AbstractBackendFactory}:
+ *
+ * <ul>
+ *   <li>{@code flogger.log4j.reuse_events}: Boolean<br>
+ *       If set, log events are created using per-thread reusable instances, in the same way as
+ *       Log4J's own garbage-free logging mode. By default this follows Log4J's {@code
+ *       log4j2.enableThreadlocals} setting (which is enabled except in web applications).
+ * </ul>
  */
 public class Log4jBackendFactory extends BackendFactory {
   // Explicit since this is a service API and called during Platform initialization.
@@ -39,34 +52,59 @@ public class Log4jBackendFactory extends BackendFactory {
 
   @Override
   public LoggerBackend create(String loggingClassName) {
-    return LazyFactory.INSTANCE.create(loggingClassName);
+    return LazyFactory.INSTANCE.createBackend(loggingClassName);
   }
 
   static final class LazyFactory extends AbstractBackendFactory<Log4jBackend> {
+    private static final String OPTION_REUSE_EVENTS = "log4j.reuse_events";
+
     static final LazyFactory INSTANCE = new LazyFactory();
 
     LazyFactory() {
-      super(loadOptions(), loadSystemRoots());
+      this((LoggerContext) LogManager.getContext());
+    }
+
+    private LazyFactory(LoggerContext context) {
+      super(loadOptions(context.getConfiguration()), loadSystemRoots(context.getConfiguration()));
+      addConfigListener(context);
+    }
+
+    // Rebuilds the formatter whenever Log4j installs a new configuration (e.g. when the config
+    // file is modified and "monitorInterval" is set, or after Configurator.reconfigure()).
+    private void addConfigListener(LoggerContext context) {
+      try {
+        context.addPropertyChangeListener(
+            event -> {
+              // Log4j also fires this event, with the same configuration as the old and new value,
+              // when loggers are updated (e.g. by Configurator.setLevel()). Rebuilding would then
+              // needlessly discard the formatter's caches.
+              if (LoggerContext.PROPERTY_CONFIG.equals(event.getPropertyName())
+                  && event.getOldValue() != event.getNewValue()) {
+                Configuration config = (Configuration) event.getNewValue();
+                reconfigure(loadOptions(config), loadSystemRoots(config));
+              }
+            });
+      } catch (LinkageError e) {
+        // The listener API uses "java.beans", which might not be available. Without a listener,
+        // logging still works, but changes to the Log4j configuration are not picked up.
+      }
     }
 
     @Override
     protected Log4jBackend newBackend(
         String backendName, LogMessageFormatter formatter, Options options) {
-      return new Log4jBackend(backendName, formatter);
+      boolean reuseEvents =
+          options.getBoolean(OPTION_REUSE_EVENTS, Constants.ENABLE_THREADLOCALS);
+      return new Log4jBackend(backendName, formatter, reuseEvents);
     }
 
-    private static List<String> loadSystemRoots() {
-      return List.copyOf(
-          ((LoggerContext) LogManager.getContext()).getConfiguration().getLoggers().keySet());
+    private static List<String> loadSystemRoots(Configuration config) {
+      return List.copyOf(config.getLoggers().keySet());
     }
 
-    private static Options loadOptions() {
+    private static Options loadOptions(Configuration config) {
       // Must not call any code which might risk triggering reentrant Flogger logging.
-      StrLookup properties =
-          ((LoggerContext) LogManager.getContext())
-              .getConfiguration()
-              .getStrSubstitutor()
-              .getVariableResolver();
+      StrLookup properties = config.getStrSubstitutor().getVariableResolver();
       return Options.of(properties::lookup).getOptions("flogger");
     }
   }
@@ -48,6 +48,15 @@ final class Log4jEventUtil {
     return org.apache.logging.log4j.Level.ERROR;
   }
 
+  // Frozen, so it can safely be shared between events.
+  private static final StringMap EMPTY_CONTEXT = createEmptyContextMap();
+
+  private static StringMap createEmptyContextMap() {
+    StringMap contextData = ContextDataFactory.createContextData(0);
+    contextData.freeze();
+    return contextData;
+  }
+
   private static final MetadataHandler<MetadataKey.KeyValueHandler> HANDLER =
       MetadataHandler.builder(Log4jEventUtil::handleMetadata).build();
 
@@ -86,6 +95,9 @@ final class Log4jEventUtil {
    * event.
    */
   static StringMap createContextMap(MetadataProcessor metadataProcessor) {
+    if (metadataProcessor.keyCount() == 0) {
+      return EMPTY_CONTEXT;
+    }
     StringMap contextData = ContextDataFactory.createContextData(metadataProcessor.keyCount());
     metadataProcessor.process(
         HANDLER,
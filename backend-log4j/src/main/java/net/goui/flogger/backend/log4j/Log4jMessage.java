@@ -12,8 +12,10 @@ package net.goui.flogger.backend.log4j;
 
 import static java.util.Objects.requireNonNull;
 
+import com.google.common.flogger.LogSite;
 import java.io.Serializable;
 import java.util.function.Consumer;
+import net.goui.flogger.backend.common.MessageBuffers;
 import org.apache.logging.log4j.message.Message;
 import org.apache.logging.log4j.util.StringBuilderFormattable;
 
@@ -40,8 +42,26 @@ final class Log4jMessage implements Message, StringBuilderFormattable, Serializa
   // like a potentially serious security issue) we just ignore it for serialization.
   private final transient Throwable thrown;
 
+  // Structured message parameters (e.g. the values of a template message). Like the cause, these
+  // are ignored for serialization since they need not be serializable.
+  private final transient Object[] parameters;
+
+  // Used to size the buffer when formatting the message as a string (null after deserialization).
+  private final transient LogSite logSite;
+
   Log4jMessage(Consumer<StringBuilder> formatter, Throwable thrown) {
+    this(formatter, EMPTY_ARGS, thrown);
+  }
+
+  Log4jMessage(Consumer<StringBuilder> formatter, Object[] parameters, Throwable thrown) {
+    this(LogSite.INVALID, formatter, parameters, thrown);
+  }
+
+  Log4jMessage(
+      LogSite logSite, Consumer<StringBuilder> formatter, Object[] parameters, Throwable thrown) {
+    this.logSite = requireNonNull(logSite);
     this.formatter = requireNonNull(formatter);
+    this.parameters = requireNonNull(parameters);
     this.thrown = thrown;
   }
 
@@ -68,10 +88,14 @@ final class Log4jMessage implements Message, StringBuilderFormattable, Serializa
   public String getFormattedMessage() {
     // Local read of volatile field.
     String message = cachedMessage;
-    if (cachedMessage == null) {
-      StringBuilder buffer = new StringBuilder();
-      formatter.accept(buffer);
-      cachedMessage = message = buffer.toString();
+    if (message == null) {
+      StringBuilder buffer = MessageBuffers.acquire(logSite);
+      try {
+        formatter.accept(buffer);
+        cachedMessage = message = buffer.toString();
+      } finally {
+        MessageBuffers.release(logSite, buffer);
+      }
     }
     return message;
   }
@@ -91,12 +115,15 @@ final class Log4jMessage implements Message, StringBuilderFormattable, Serializa
   }
 
   /**
-   * Returns the empty string to indicate this {@link Message} has no concept of accessing the
-   * unformatted message parameters.
+   * Returns the structured parameters of this message (e.g. the values of a template log
+   * statement), or an empty array if the message has none.
+   *
+   * <p>WARNING: This is always empty if the message is serialized.
    */
   @Override
   public Object[] getParameters() {
-    return EMPTY_ARGS;
+    // Parameters are not serialized, so can be null after deserialization.
+    return parameters != null ? parameters : EMPTY_ARGS;
   }
 
   /**
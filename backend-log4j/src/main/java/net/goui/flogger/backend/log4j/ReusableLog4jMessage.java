@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.backend.log4j;
+
+import com.google.common.flogger.LogSite;
+import com.google.common.flogger.backend.LogData;
+import com.google.common.flogger.backend.LogMessageFormatter;
+import com.google.common.flogger.backend.MetadataProcessor;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import net.goui.flogger.backend.common.MessageBuffers;
+import net.goui.flogger.backend.common.TemplateMessage;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.ReusableMessage;
+
+/**
+ * A mutable Log4J {@link ReusableMessage} for garbage-free logging, which is re-initialized for
+ * each log statement in a thread.
+ *
+ * <p>When set on a Log4J {@code MutableLogEvent}, a reusable message is formatted immediately into
+ * the event's own reusable buffer (and its parameters are copied into the event's reusable array),
+ * so no intermediate objects are allocated. If the event needs to outlive the log statement (e.g.
+ * for asynchronous logging) Log4J calls {@link #memento()} to obtain an immutable copy.
+ *
+ * <p>Instances are not thread safe and must only be used by the thread which owns them.
+ */
+final class ReusableLog4jMessage implements ReusableMessage {
+  private static final Object[] EMPTY_ARGS = new Object[0];
+
+  @CheckForNull private LogMessageFormatter formatter;
+  @CheckForNull private LogData data;
+  @CheckForNull private MetadataProcessor metadata;
+  @CheckForNull private TemplateMessage template;
+  @CheckForNull private Throwable thrown;
+
+  /** Initializes this message for a new log statement. */
+  void set(
+      LogMessageFormatter formatter,
+      LogData data,
+      MetadataProcessor metadata,
+      @CheckForNull Throwable thrown) {
+    this.formatter = formatter;
+    this.data = data;
+    this.metadata = metadata;
+    // Template messages expose their values as structured message parameters.
+    this.template = TemplateMessage.from(data);
+    this.thrown = thrown;
+  }
+
+  /** Clears this message after use, so that log statement data can be garbage collected. */
+  void clear() {
+    formatter = null;
+    data = null;
+    metadata = null;
+    template = null;
+    thrown = null;
+  }
+
+  @Override
+  public void formatTo(StringBuilder buffer) {
+    formatter.append(data, metadata, buffer);
+  }
+
+  @Override
+  public String getFormattedMessage() {
+    LogSite logSite = data.getLogSite();
+    StringBuilder buffer = MessageBuffers.acquire(logSite);
+    try {
+      formatTo(buffer);
+      return buffer.toString();
+    } finally {
+      MessageBuffers.release(logSite, buffer);
+    }
+  }
+
+  /** Returns the empty string (see {@link Log4jMessage#getFormat()}). */
+  @Override
+  public String getFormat() {
+    return "";
+  }
+
+  @Override
+  public Object[] getParameters() {
+    return template != null ? template.getValues().toArray() : EMPTY_ARGS;
+  }
+
+  @Override
+  public Throwable getThrowable() {
+    return thrown;
+  }
+
+  /**
+   * Returns an array holding the parameters of this message. Since this message does not retain
+   * parameter arrays, the given array is returned (with the parameters copied into it) unless it is
+   * too small to hold them.
+   */
+  @Override
+  public Object[] swapParameters(Object[] emptyReplacement) {
+    if (template == null) {
+      return emptyReplacement;
+    }
+    List<Object> values = template.getValues();
+    if (values.size() > emptyReplacement.length) {
+      return values.toArray();
+    }
+    for (int n = 0; n < values.size(); n++) {
+      emptyReplacement[n] = values.get(n);
+    }
+    return emptyReplacement;
+  }
+
+  @Override
+  public short getParameterCount() {
+    return (short) (template != null ? template.getValues().size() : 0);
+  }
+
+  /** Returns an immutable copy of this message, with the message text already formatted. */
+  @Override
+  public Message memento() {
+    String message = getFormattedMessage();
+    return new Log4jMessage(b -> b.append(message), getParameters(), thrown);
+  }
+}
@@ -25,6 +25,9 @@ import net.goui.flogger.testing.LevelClass;
 import net.goui.flogger.testing.LogEntry;
 import net.goui.flogger.testing.SetLogLevel;
 import net.goui.flogger.testing.junit4.FloggerTestRule;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.Logger;
+import org.apache.logging.log4j.core.config.Configurator;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -79,6 +82,46 @@ public class Log4jBackendTest {
     assertThat(logs.get(1)).message().isEqualTo("INFO <<message 2>>");
   }
 
+  @Test
+  public void testBackendLog_reusableEvents() {
+    Log4jBackend backend = new Log4jBackend(BACKEND_NAME, TEST_FORMATTER, true);
+
+    // The same log site is used twice to exercise the cached log site information.
+    LogSite logSite = logSite();
+    backend.log(FakeLogData.of("message 1").setLogSite(logSite).setLevel(Level.INFO));
+    backend.log(FakeLogData.of("message 2").setLogSite(logSite).setLevel(Level.WARNING));
+
+    ImmutableList<LogEntry> logs = logged.assertLogs().getAllMatches();
+    assertThat(logs).hasSize(2);
+    assertThat(logs.get(0)).message().isEqualTo("INFO <<message 1>>");
+    assertThat(logs.get(1)).message().isEqualTo("WARNING <<message 2>>");
+  }
+
+  @Test
+  public void testBackendLog_reusableEvents_reentrant() {
+    Log4jBackend[] backend = new Log4jBackend[1];
+    LogSite logSite = logSite();
+    // A formatter which logs (once) during formatting, while the reusable event is in use.
+    LogMessageFormatter reentrantFormatter =
+        new LogMessageFormatter() {
+          @Override
+          public StringBuilder append(LogData data, MetadataProcessor metadata, StringBuilder out) {
+            if (data.getLiteralArgument().equals("outer")) {
+              backend[0].log(FakeLogData.of("inner").setLogSite(logSite).setLevel(Level.INFO));
+            }
+            return appendTestFormat(data, out);
+          }
+        };
+    backend[0] = new Log4jBackend(BACKEND_NAME, reentrantFormatter, true);
+
+    backend[0].log(FakeLogData.of("outer").setLogSite(logSite).setLevel(Level.INFO));
+
+    ImmutableList<LogEntry> logs = logged.assertLogs().getAllMatches();
+    assertThat(logs).hasSize(2);
+    assertThat(logs.get(0)).message().isEqualTo("INFO <<inner>>");
+    assertThat(logs.get(1)).message().isEqualTo("INFO <<outer>>");
+  }
+
   // Add the Log4J backend to what's captured for this test as it is where the warning comes from.
   @Test
   @SetLogLevel(target = Log4jBackend.class, level = LevelClass.WARNING)
@@ -118,4 +161,43 @@ public class Log4jBackendTest {
     assertThat(warnBackend.isLoggable(Level.WARNING)).isTrue();
     assertThat(warnBackend.isLoggable(Level.INFO)).isFalse();
   }
+
+  @Test
+  public void isLoggable_afterReconfiguration() {
+    // Not in the XML config, so this inherits level "info" from the backend logger.
+    String name = BACKEND_NAME + ".reconfigured";
+    Log4jBackend backend = new Log4jBackend(name, TEST_FORMATTER);
+    assertThat(backend.isLoggable(Level.FINE)).isFalse();
+
+    // Cached level thresholds must be invalidated when the configuration changes.
+    Configurator.setLevel(name, org.apache.logging.log4j.Level.DEBUG);
+    try {
+      assertThat(backend.isLoggable(Level.FINE)).isTrue();
+      assertThat(backend.isLoggable(Level.FINEST)).isFalse();
+    } finally {
+      Configurator.setLevel(name, org.apache.logging.log4j.Level.INFO);
+    }
+    assertThat(backend.isLoggable(Level.FINE)).isFalse();
+  }
+
+  @Test
+  public void isLoggable_afterDirectLevelChange() {
+    // Not in the XML config, so this inherits level "info" from the backend logger.
+    String name = BACKEND_NAME + ".direct";
+    Log4jBackend backend = new Log4jBackend(name, TEST_FORMATTER);
+    assertThat(backend.isLoggable(Level.FINE)).isFalse();
+
+    // Setting the level on the logger directly does not change the configuration (or notify any
+    // listeners), but must still be seen by cached level thresholds.
+    Logger logger = (Logger) LogManager.getLogger(name);
+    logger.setLevel(org.apache.logging.log4j.Level.DEBUG);
+    try {
+      assertThat(backend.isLoggable(Level.FINE)).isTrue();
+      assertThat(backend.isLoggable(Level.FINEST)).isFalse();
+    } finally {
+      // Reverts to the inherited level.
+      logger.setLevel(null);
+    }
+    assertThat(backend.isLoggable(Level.FINE)).isFalse();
+  }
 }
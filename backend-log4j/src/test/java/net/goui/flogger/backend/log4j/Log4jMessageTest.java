@@ -39,6 +39,15 @@ public class Log4jMessageTest {
     assertThat(message.getParameters()).isEmpty();
   }
 
+  @Test
+  public void testMessage_parameters() {
+    Object[] parameters = {"foo", 42};
+    Log4jMessage message = new Log4jMessage(b -> b.append("FORMAT"), parameters, null);
+
+    assertThat(message.getFormattedMessage()).isEqualTo("FORMAT");
+    assertThat(message.getParameters()).asList().containsExactly("foo", 42).inOrder();
+  }
+
   @Test
   public void testMessage_caching() {
     // Sneaky test format function that emits the current call count.
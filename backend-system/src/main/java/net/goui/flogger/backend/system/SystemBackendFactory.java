@@ -15,9 +15,15 @@ import com.google.common.flogger.backend.LogMessageFormatter;
 import com.google.common.flogger.backend.LoggerBackend;
 import com.google.common.flogger.backend.Metadata;
 import com.google.common.flogger.backend.Platform;
-import com.google.common.flogger.backend.system.AbstractBackend;
 import com.google.common.flogger.backend.system.BackendFactory;
+import com.google.errorprone.annotations.concurrent.LazyInit;
+import java.util.logging.Filter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
 import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import javax.annotation.CheckForNull;
 import net.goui.flogger.backend.common.AbstractBackendFactory;
 import net.goui.flogger.backend.common.Options;
 
@@ -40,7 +46,7 @@ public class SystemBackendFactory extends BackendFactory {
 
   @Override
   public LoggerBackend create(String loggingClassName) {
-    return LazyFactory.INSTANCE.create(loggingClassName);
+    return LazyFactory.INSTANCE.createBackend(loggingClassName);
   }
 
   // Only called by SystemLogRecord.
@@ -53,6 +59,10 @@ public class SystemBackendFactory extends BackendFactory {
 
     LazyFactory() {
       super(loadOptions(), FloggerConfig.getSystemRoots());
+      // Rebuild the formatter whenever the JDK logging configuration is re-read or updated.
+      LogManager.getLogManager()
+          .addConfigurationListener(
+              () -> reconfigure(loadOptions(), FloggerConfig.getSystemRoots()));
     }
 
     @Override
@@ -67,10 +77,39 @@ public class SystemBackendFactory extends BackendFactory {
     }
   }
 
-  // TODO: Stop extending AbstractBackend so the JDK logger setup can be made lazy.
-  private static final class Backend extends AbstractBackend {
-    Backend(String loggerName) {
-      super(loggerName);
+  /**
+   * JDK logging backend, using a lazily initialized JDK logger. Creating and registering a JDK
+   * logger is relatively expensive, and many backends (e.g. for classes which only log at fine
+   * levels, or only log errors) are never used, so this is deferred until the first log statement.
+   */
+  private static final class Backend extends LoggerBackend {
+    private final String loggerName;
+    // Lazily initialized underlying JDK logger. The LogManager returns the same instance for
+    // repeated calls with the same name (while it is strongly referenced).
+    @LazyInit @CheckForNull private Logger logger;
+
+    Backend(String backendName) {
+      // JDK logger names use '.' for nested classes (this matches Flogger's AbstractBackend).
+      this.loggerName = backendName.replace('$', '.');
+    }
+
+    private Logger lazyLogger() {
+      // @LazyInit pattern: http://jeremymanson.blogspot.com/2008/12/benign-data-races-in-java.html
+      Logger localRef = logger;
+      if (localRef == null) {
+        logger = localRef = Logger.getLogger(loggerName);
+      }
+      return localRef;
+    }
+
+    @Override
+    public String getLoggerName() {
+      return loggerName;
+    }
+
+    @Override
+    public boolean isLoggable(Level level) {
+      return lazyLogger().isLoggable(level);
     }
 
     @Override
@@ -84,5 +123,31 @@ public class SystemBackendFactory extends BackendFactory {
       Metadata context = Platform.getInjectedMetadata();
       log(SystemLogRecord.error(error, badData, context), badData.wasForced());
     }
+
+    private void log(LogRecord record, boolean wasForced) {
+      Logger jdkLogger = lazyLogger();
+      if (!wasForced || jdkLogger.isLoggable(record.getLevel())) {
+        jdkLogger.log(record);
+        return;
+      }
+      // Forced log statements below the logger's level would be discarded by Logger#log(), so
+      // (as in Flogger's AbstractBackend) apply any filter and publish directly to the handlers.
+      Filter filter = jdkLogger.getFilter();
+      if (filter == null || filter.isLoggable(record)) {
+        publish(jdkLogger, record);
+      }
+    }
+
+    // Matches the way Logger#log() publishes records to handlers, without checking levels.
+    private static void publish(Logger logger, LogRecord record) {
+      for (; logger != null; logger = logger.getParent()) {
+        for (Handler handler : logger.getHandlers()) {
+          handler.publish(record);
+        }
+        if (!logger.getUseParentHandlers()) {
+          break;
+        }
+      }
+    }
   }
 }
@@ -16,6 +16,7 @@ import com.google.common.flogger.backend.LogMessageFormatter;
 import com.google.common.flogger.backend.Metadata;
 import com.google.common.flogger.backend.system.AbstractLogRecord;
 import net.goui.flogger.backend.common.FloggerLogEntry;
+import net.goui.flogger.backend.common.LogDataSnapshot;
 
 /** TODO: Maybe stop extending AbstractLogRecord to allow serialization? */
 public final class SystemLogRecord extends AbstractLogRecord implements FloggerLogEntry {
@@ -32,6 +33,10 @@ public final class SystemLogRecord extends AbstractLogRecord implements FloggerL
   private SystemLogRecord(LogData data, Metadata scope) {
     super(data, scope);
     setThrown(getMetadataProcessor().getSingleValue(LogContext.Key.LOG_CAUSE));
+    if (data instanceof LogDataSnapshot) {
+      // Asynchronous logging, so use the thread in which the log statement was made.
+      setThreadId((LogDataSnapshot) data);
+    }
     // See Flogger's SimpleLogRecord for why this is *essential* when using JDK log handlers.
     String unused = getMessage();
   }
@@ -41,8 +46,13 @@ public final class SystemLogRecord extends AbstractLogRecord implements FloggerL
     super(error, data, scope);
   }
 
-  // Since the formatter is a function of our static options, it's effectively a singleton, so avoid
-  // needing to add another field per log record by getting it from the factory.
+  @SuppressWarnings("deprecation") // Switch to setLongThreadID() after JDK 16+ is standard.
+  private void setThreadId(LogDataSnapshot snapshot) {
+    setThreadID((int) snapshot.getThreadId());
+  }
+
+  // Since the formatter is shared by all log records (though it can change after reconfiguration),
+  // avoid needing to add another field per log record by getting it from the factory.
   @Override
   public LogMessageFormatter getLogMessageFormatter() {
     return SystemBackendFactory.getFormatter();
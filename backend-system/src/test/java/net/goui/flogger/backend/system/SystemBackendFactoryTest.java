@@ -18,6 +18,7 @@ import static net.goui.flogger.testing.truth.LogSubject.assertThat;
 
 import com.google.common.flogger.FluentLogger;
 import com.google.common.flogger.MetadataKey;
+import com.google.common.flogger.backend.LoggerBackend;
 import java.util.ArrayList;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
@@ -110,6 +111,18 @@ public class SystemBackendFactoryTest {
     assertThat(errLog).message().contains("original message: Message");
   }
 
+  @Test
+  public void testBackend_bindsJdkLoggerLazily() {
+    // The backend name is not used by any other test (whatever the naming strategy maps it to).
+    LoggerBackend backend = new SystemBackendFactory().create("com.example.lazy.test.SomeClass");
+    String name = backend.getLoggerName();
+
+    // No JDK logger is created (or registered with the LogManager) until the backend is used.
+    assertThat(LogManager.getLogManager().getLogger(name)).isNull();
+    backend.isLoggable(Level.INFO);
+    assertThat(LogManager.getLogManager().getLogger(name)).isNotNull();
+  }
+
   @Test
   public void testJdkConfiguration_rootNames() {
     // The logging properties file defines 3 mappings, one for each of the test logger classes.
@@ -0,0 +1,26 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger;
+
+import com.google.common.flogger.backend.LoggerBackend;
+
+/**
+ * Creates loggers with specific backends for benchmarks in other packages (the {@link
+ * FluentLogger} constructor is not public).
+ */
+public final class BenchmarkLoggers {
+  /** Returns a new logger which logs to the given backend. */
+  public static FluentLogger forBackend(LoggerBackend backend) {
+    return new FluentLogger("benchmark", backend);
+  }
+
+  private BenchmarkLoggers() {}
+}
@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger;
+
+import com.google.common.flogger.backend.LogData;
+import com.google.common.flogger.backend.LoggerBackend;
+import java.util.logging.Level;
+import net.goui.flogger.backend.common.TemplateMessage;
+
+/**
+ * A logger backend for benchmarking which formats log messages (at or above a given level) into a
+ * reusable buffer and then discards them. This measures the cost of log statements without the
+ * overhead of any underlying logging system.
+ */
+final class DiscardingBackend extends LoggerBackend {
+  private final Level minLevel;
+  private final StringBuilder buffer = new StringBuilder();
+  // Read by benchmarks to ensure that formatting is not optimized away.
+  private int totalLength = 0;
+
+  DiscardingBackend(Level minLevel) {
+    this.minLevel = minLevel;
+  }
+
+  @Override
+  public String getLoggerName() {
+    return "benchmark";
+  }
+
+  @Override
+  public boolean isLoggable(Level level) {
+    return level.intValue() >= minLevel.intValue();
+  }
+
+  @Override
+  public void log(LogData data) {
+    buffer.setLength(0);
+    TemplateMessage.appendFormattedMessage(data, buffer);
+    totalLength += buffer.length();
+  }
+
+  @Override
+  public void handleError(RuntimeException error, LogData badData) {
+    throw error;
+  }
+
+  int getTotalLength() {
+    return totalLength;
+  }
+}
@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger;
+
+import static java.lang.StringTemplate.RAW;
+
+import com.google.common.flogger.LogSite;
+import com.google.common.flogger.backend.Platform;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks comparing cached log site resolution for template log statements (via {@link
+ * LogSiteCache}) with resolving the log site by stack walking on every call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class LogSiteBenchmark {
+  private final DiscardingBackend backend = new DiscardingBackend(Level.INFO);
+  private final FluentLogger logger = new FluentLogger("benchmark", backend);
+  private int count = 0;
+
+  /** The cost of determining a log site via stack walking (the previous behaviour). */
+  @Benchmark
+  public LogSite resolveLogSite_stackWalking() {
+    return Platform.getCallerFinder().findLogSite(LogSiteBenchmark.class, 0);
+  }
+
+  /** The cost of looking up a cached log site for a template literal. */
+  @Benchmark
+  public LogSite resolveLogSite_cached() {
+    StringTemplate template = RAW."count=\{count++}";
+    LogSite logSite = LogSiteCache.get(template);
+    if (logSite == null) {
+      logSite = Platform.getCallerFinder().findLogSite(LogSiteBenchmark.class, 0);
+      LogSiteCache.put(template, logSite);
+    }
+    return logSite;
+  }
+
+  /** An enabled template log statement, with the log site determined on every call. */
+  @Benchmark
+  public int templateLogStatement_stackWalking() {
+    StringTemplate template = RAW."count=\{count++}";
+    LogSite logSite = Platform.getCallerFinder().findLogSite(LogSiteBenchmark.class, 0);
+    logger
+        .atInfo()
+        .withInjectedLogSite(logSite)
+        .log("%s", FluentLogger.lazilyInterpolate(template));
+    return backend.getTotalLength();
+  }
+
+  /** An enabled template log statement, with the log site cached. */
+  @Benchmark
+  public int templateLogStatement_cached() {
+    logger.atInfo()."count=\{count++}".log();
+    return backend.getTotalLength();
+  }
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the {@link FluentLogger} API, measuring the cost of disabled log statements and
+ * comparing enabled template log statements with equivalent printf style log statements.
+ *
+ * <p>The logger uses a {@link DiscardingBackend} (enabled at {@code INFO}), so these benchmarks
+ * measure the cost of the logger API and message formatting only.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class LoggerBenchmark {
+  private final DiscardingBackend backend = new DiscardingBackend(Level.INFO);
+  private final FluentLogger logger = new FluentLogger("benchmark", backend);
+  private final String name = "Hello World";
+  private final double value = 1234.5678;
+  private int count = 0;
+
+  /** The cost of a disabled log level check (no log statement). */
+  @Benchmark
+  public boolean disabled_isEnabled() {
+    return logger.atFine().isEnabled();
+  }
+
+  /** A disabled printf style log statement. */
+  @Benchmark
+  public int disabled_printf() {
+    logger.atFine().log("name=%s, count=%d", name, count++);
+    return backend.getTotalLength();
+  }
+
+  /** A disabled template log statement. */
+  @Benchmark
+  public int disabled_template() {
+    logger.atFine()."name=\{name}, count=\{count++}".log();
+    return backend.getTotalLength();
+  }
+
+  /** A disabled log statement at a level given at runtime (via {@code at(Level)}). */
+  @Benchmark
+  public int disabled_atLevel() {
+    logger.at(Level.FINE).log("name=%s, count=%d", name, count++);
+    return backend.getTotalLength();
+  }
+
+  @Benchmark
+  public int enabled_printf() {
+    logger.atInfo().log("name=%s, count=%d, value=%.2f", name, count++, value);
+    return backend.getTotalLength();
+  }
+
+  @Benchmark
+  public int enabled_template() {
+    logger.atInfo()."name=\{name}, count=\{count++}, value=%.2f\{value}".log();
+    return backend.getTotalLength();
+  }
+}
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger;
+
+import static java.lang.StringTemplate.RAW;
+
+import java.util.FormatProcessor;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for formatting string templates via the {@link TemplateCache} compared to processing
+ * them directly via {@link FormatProcessor#FMT}. Cache hit/miss counts are reported as auxiliary
+ * counters.
+ *
+ * <p>Also compares appending large template messages directly into a buffer, with appending them
+ * via an intermediate string (use {@code -prof gc} to see the difference in allocation rates).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class TemplateBenchmark {
+  private int count = 0;
+  private final String name = "Hello World";
+  private final double value = 1234.5678;
+  private final String largeValue = "x".repeat(2000);
+  private final StringBuilder buffer = new StringBuilder();
+
+  @Benchmark
+  public String plainTemplate_cached(CacheCounters counters) {
+    int n = count++;
+    return TemplateCache.format(RAW."name=\{name}, count=\{n}, value=\{value}");
+  }
+
+  @Benchmark
+  public String plainTemplate_uncached() {
+    int n = count++;
+    return FormatProcessor.FMT.process(RAW."name=\{name}, count=\{n}, value=\{value}");
+  }
+
+  @Benchmark
+  public String formattedTemplate_cached(CacheCounters counters) {
+    int n = count++;
+    return TemplateCache.format(RAW."name=%-12s\{name}, count=%#x\{n}, value=%.2f\{value}");
+  }
+
+  @Benchmark
+  public String formattedTemplate_uncached() {
+    int n = count++;
+    return FormatProcessor.FMT.process(RAW."name=%-12s\{name}, count=%#x\{n}, value=%.2f\{value}");
+  }
+
+  /** Appends a large template message to a buffer directly. */
+  @Benchmark
+  public int largeTemplate_appendTo() {
+    int n = count++;
+    LogTemplate template = new LogTemplate(RAW."count=%d\{n}, large=\{largeValue}");
+    buffer.setLength(0);
+    template.appendTo(buffer);
+    return buffer.length();
+  }
+
+  /** Appends a large template message to a buffer via an intermediate string. */
+  @Benchmark
+  public int largeTemplate_toString() {
+    int n = count++;
+    LogTemplate template = new LogTemplate(RAW."count=%d\{n}, large=\{largeValue}");
+    buffer.setLength(0);
+    buffer.append(template.toString());
+    return buffer.length();
+  }
+
+  /** Reports the number of template cache hits and misses during each iteration. */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class CacheCounters {
+    private long initialHits;
+    private long initialMisses;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      initialHits = TemplateCache.getHitCount();
+      initialMisses = TemplateCache.getMissCount();
+    }
+
+    public long cacheHits() {
+      return TemplateCache.getHitCount() - initialHits;
+    }
+
+    public long cacheMisses() {
+      return TemplateCache.getMissCount() - initialMisses;
+    }
+  }
+}
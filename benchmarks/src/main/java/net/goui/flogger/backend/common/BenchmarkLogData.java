@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.backend.common;
+
+import com.google.common.flogger.LogSite;
+import com.google.common.flogger.MetadataKey;
+import com.google.common.flogger.backend.LogData;
+import com.google.common.flogger.backend.Metadata;
+import com.google.common.flogger.backend.TemplateContext;
+import com.google.common.flogger.parser.DefaultPrintfMessageParser;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Fixed log data for benchmarking formatters and backends directly (i.e. without the overhead of
+ * the logger API). This is similar to {@code FakeLogData} from the Flogger testing library, but
+ * avoids a dependency on test code.
+ */
+public final class BenchmarkLogData implements LogData {
+  private static final LogSite LOG_SITE =
+      LogSite.injectedLogSite("com/example/Benchmark", "someMethod", 42, "Benchmark.java");
+
+  private final TemplateContext context;
+  private final Object[] args;
+  private final List<MetadataKey<?>> keys = new ArrayList<>();
+  private final List<Object> values = new ArrayList<>();
+  private Level level = Level.INFO;
+  private long timestampNanos = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+
+  // Avoid allocating in getMetadata() so as not to distort allocation measurements.
+  private final Metadata metadata =
+      new Metadata() {
+        @Override
+        public int size() {
+          return keys.size();
+        }
+
+        @Override
+        public MetadataKey<?> getKey(int n) {
+          return keys.get(n);
+        }
+
+        @Override
+        public Object getValue(int n) {
+          return values.get(n);
+        }
+
+        @Override
+        public <T> T findValue(MetadataKey<T> key) {
+          int index = keys.indexOf(key);
+          return index >= 0 ? key.cast(values.get(index)) : null;
+        }
+      };
+
+  /** Returns log data for a printf style log statement with the given arguments. */
+  public static BenchmarkLogData withPrintfStyleArgs(String message, Object... args) {
+    return new BenchmarkLogData(message, args);
+  }
+
+  private BenchmarkLogData(String message, Object[] args) {
+    this.context = new TemplateContext(DefaultPrintfMessageParser.getInstance(), message);
+    this.args = args;
+  }
+
+  /** Adds a metadata key/value pair to this log data (as log-site metadata). */
+  public <T> BenchmarkLogData addMetadata(MetadataKey<T> key, T value) {
+    keys.add(key);
+    values.add(value);
+    return this;
+  }
+
+  public BenchmarkLogData setLevel(Level level) {
+    this.level = level;
+    return this;
+  }
+
+  public BenchmarkLogData setTimestampNanos(long timestampNanos) {
+    this.timestampNanos = timestampNanos;
+    return this;
+  }
+
+  @Override
+  public Level getLevel() {
+    return level;
+  }
+
+  @Deprecated
+  @Override
+  public long getTimestampMicros() {
+    return TimeUnit.NANOSECONDS.toMicros(timestampNanos);
+  }
+
+  @Override
+  public long getTimestampNanos() {
+    return timestampNanos;
+  }
+
+  @Override
+  public String getLoggerName() {
+    return "com.example.Benchmark";
+  }
+
+  @Override
+  public LogSite getLogSite() {
+    return LOG_SITE;
+  }
+
+  @Override
+  public Metadata getMetadata() {
+    return metadata;
+  }
+
+  @Override
+  public boolean wasForced() {
+    return false;
+  }
+
+  @Override
+  public TemplateContext getTemplateContext() {
+    return context;
+  }
+
+  @Override
+  public Object[] getArguments() {
+    return args;
+  }
+
+  @Override
+  public Object getLiteralArgument() {
+    throw new IllegalStateException("literal arguments are not supported");
+  }
+}
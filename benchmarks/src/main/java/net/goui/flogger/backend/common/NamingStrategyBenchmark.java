@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.backend.common;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link DefaultNamingStrategy#getBackendName(String)} with many configured roots.
+ * Class names are chosen to hit roots directly, to hit roots with wildcard extensions, and to miss
+ * all roots.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class NamingStrategyBenchmark {
+  @Param({"10", "1000", "5000"})
+  public int rootCount;
+
+  private DefaultNamingStrategy strategy;
+  private String[] classNames;
+  private int index = 0;
+
+  @Setup
+  public void setUp() {
+    Map<String, String> options = new HashMap<>();
+    options.put("roots.size", Integer.toString(rootCount));
+    for (int n = 0; n < rootCount; n++) {
+      // Every other root is extended by one level to exercise wildcard handling.
+      String suffix = (n % 2 == 0) ? "" : ".*";
+      options.put("roots." + n, "com.example.team" + n + ".service" + suffix);
+    }
+    strategy = new DefaultNamingStrategy(Options.of(options::get));
+
+    // A power of two so the index can be masked.
+    classNames = new String[256];
+    for (int n = 0; n < classNames.length; n++) {
+      int root = (n * 7919) % rootCount;
+      switch (n % 3) {
+        case 0:
+          classNames[n] = "com.example.team" + root + ".service.impl.deep.SomeClass";
+          break;
+        case 1:
+          classNames[n] = "com.example.team" + root + ".service.SomeClass";
+          break;
+        default:
+          classNames[n] = "org.unmatched.pkg" + n + ".SomeClass";
+          break;
+      }
+    }
+  }
+
+  @Benchmark
+  public String getBackendName() {
+    return strategy.getBackendName(classNames[index++ & (classNames.length - 1)]);
+  }
+}
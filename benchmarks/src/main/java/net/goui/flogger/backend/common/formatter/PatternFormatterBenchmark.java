@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.backend.common.formatter;
+
+import com.google.common.flogger.MetadataKey;
+import com.google.common.flogger.backend.Metadata;
+import com.google.common.flogger.backend.MetadataProcessor;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import net.goui.flogger.backend.common.BenchmarkLogData;
+import net.goui.flogger.backend.common.Options;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link DefaultPatternFormatter#append} with patterns using different directives.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class PatternFormatterBenchmark {
+  public static final MetadataKey<String> TASK_ID = MetadataKey.single("task_id", String.class);
+  public static final MetadataKey<Integer> COUNT = MetadataKey.single("count", Integer.class);
+
+  @Param({
+    "%{message}",
+    "%{message}%{metadata/ [/]}",
+    "%{timestamp} %{message}",
+    "%{key.task_id/Task=/: }%{message}",
+    "%{timestamp} %{level}[%{location}] %{key.task_id/Task=/: }%{message}%{metadata/ [/]}",
+  })
+  public String pattern;
+
+  private final StringBuilder buffer = new StringBuilder();
+  private DefaultPatternFormatter formatter;
+  private BenchmarkLogData logData;
+  private MetadataProcessor metadata;
+
+  @Setup
+  public void setUp() {
+    Map<String, String> options =
+        Map.of(
+            "pattern", pattern,
+            "metadata.key.task_id", PatternFormatterBenchmark.class.getName() + "#TASK_ID");
+    formatter = new DefaultPatternFormatter(Options.of(options::get));
+    logData =
+        BenchmarkLogData.withPrintfStyleArgs("Hello %s, value=%d", "World", 42)
+            .addMetadata(TASK_ID, "abc-123")
+            .addMetadata(COUNT, 1234);
+    metadata = MetadataProcessor.forScopeAndLogSite(Metadata.empty(), logData.getMetadata());
+  }
+
+  @Benchmark
+  public int append() {
+    buffer.setLength(0);
+    return formatter.append(logData, metadata, buffer).length();
+  }
+}
@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.backend.common.formatter;
+
+import com.google.common.flogger.backend.Metadata;
+import com.google.common.flogger.backend.MetadataProcessor;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import net.goui.flogger.backend.common.BenchmarkLogData;
+import net.goui.flogger.backend.common.Options;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks comparing the cached timestamp formatting in {@link DefaultTimestampFormatter} with
+ * formatting an {@link Instant} directly via {@link DateTimeFormatter}.
+ *
+ * <p>Timestamps advance by 5 microseconds for each operation (i.e. 200,000 log statements per
+ * second), so the cache is replaced regularly during the benchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class TimestampFormatterBenchmark {
+  private static final long STEP_NANOS = 5_000;
+
+  /** The timestamp pattern (empty for the default ISO instant format). */
+  @Param({"", "yyyy-MM-dd HH:mm:ss.SSS", "HH:mm:ss.SSSSSS"})
+  public String pattern;
+
+  private final StringBuilder buffer = new StringBuilder();
+  private DefaultTimestampFormatter formatter;
+  private DateTimeFormatter dateTimeFormatter;
+  private BenchmarkLogData logData;
+  private MetadataProcessor metadata;
+  private long timestampNanos;
+
+  @Setup
+  public void setUp() {
+    Map<String, String> options = Map.of("pattern", pattern, "zone_id", "UTC");
+    formatter = new DefaultTimestampFormatter(Options.of(options::get));
+    dateTimeFormatter =
+        (pattern.isEmpty() ? DateTimeFormatter.ISO_INSTANT : DateTimeFormatter.ofPattern(pattern))
+            .withZone(ZoneOffset.UTC);
+    logData = BenchmarkLogData.withPrintfStyleArgs("Hello World");
+    metadata = MetadataProcessor.forScopeAndLogSite(Metadata.empty(), Metadata.empty());
+    timestampNanos = Instant.parse("2024-03-01T12:00:00Z").getEpochSecond() * 1_000_000_000L;
+  }
+
+  /** Cached formatting via {@link DefaultTimestampFormatter}. */
+  @Benchmark
+  public int cached() {
+    timestampNanos += STEP_NANOS;
+    logData.setTimestampNanos(timestampNanos);
+    buffer.setLength(0);
+    return formatter.append(logData, metadata, buffer).length();
+  }
+
+  /** Uncached formatting via {@link DateTimeFormatter} (the previous implementation). */
+  @Benchmark
+  public int uncached() {
+    timestampNanos += STEP_NANOS;
+    buffer.setLength(0);
+    long seconds = Math.floorDiv(timestampNanos, 1_000_000_000L);
+    int nanos = (int) Math.floorMod(timestampNanos, 1_000_000_000L);
+    dateTimeFormatter.formatTo(Instant.ofEpochSecond(seconds, nanos), buffer);
+    return buffer.length();
+  }
+}
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.backend.log4j;
+
+import com.google.common.flogger.MetadataKey;
+import java.util.concurrent.TimeUnit;
+import net.goui.flogger.BenchmarkLoggers;
+import net.goui.flogger.FluentLogger;
+import net.goui.flogger.backend.common.BenchmarkLogData;
+import net.goui.flogger.backend.common.Options;
+import net.goui.flogger.backend.common.formatter.DefaultPatternFormatter;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.config.LoggerConfig;
+import org.apache.logging.log4j.core.config.Property;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.util.StringBuilderFormattable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end benchmarks for {@link Log4jBackend}, both called directly and via the logger API.
+ *
+ * <p>Log4j is configured with a single appender which formats each message into a reusable buffer
+ * and discards it, so these benchmarks include the cost of creating and dispatching Log4j events,
+ * but not of any layout or I/O. Benchmarks are run with and without reusable (garbage-free) log
+ * events.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class Log4jBackendBenchmark {
+  private static final MetadataKey<String> TASK_ID = MetadataKey.single("task_id", String.class);
+
+  /** Whether to use per-thread reusable log events (garbage-free mode). */
+  @Param({"false", "true"})
+  public boolean reuseEvents;
+
+  private DiscardingAppender appender;
+  private Log4jBackend backend;
+  private FluentLogger logger;
+  private BenchmarkLogData logData;
+  private BenchmarkLogData logDataNoMetadata;
+  private int count = 0;
+
+  @Setup
+  public void setUp() {
+    LoggerContext context = (LoggerContext) LogManager.getContext(false);
+    LoggerConfig root = context.getConfiguration().getRootLogger();
+    for (String name : root.getAppenders().keySet()) {
+      root.removeAppender(name);
+    }
+    appender = new DiscardingAppender();
+    appender.start();
+    root.addAppender(appender, Level.INFO, null);
+    root.setLevel(Level.INFO);
+    context.updateLoggers();
+
+    backend =
+        new Log4jBackend(
+            "benchmark", new DefaultPatternFormatter(Options.of(s -> null)), reuseEvents);
+    logger = BenchmarkLoggers.forBackend(backend);
+    logData =
+        BenchmarkLogData.withPrintfStyleArgs("Hello %s, value=%d", "World", 42)
+            .addMetadata(TASK_ID, "abc-123");
+    logDataNoMetadata = BenchmarkLogData.withPrintfStyleArgs("Hello %s, value=%s", "World", "42");
+  }
+
+  /** Logs directly via the backend (no logger API overhead). */
+  @Benchmark
+  public long backend_log() {
+    backend.log(logData);
+    return appender.totalLength;
+  }
+
+  /** Logs a statement with no metadata directly via the backend. */
+  @Benchmark
+  public long backend_log_noMetadata() {
+    backend.log(logDataNoMetadata);
+    return appender.totalLength;
+  }
+
+  /** A disabled level check via the backend (no logger API overhead). */
+  @Benchmark
+  public boolean backend_isLoggable_disabled() {
+    return backend.isLoggable(java.util.logging.Level.FINE);
+  }
+
+  /** An enabled template log statement via the logger API. */
+  @Benchmark
+  public long logger_template() {
+    logger.atInfo()."Hello \{"World"}, count=\{count++}".log();
+    return appender.totalLength;
+  }
+
+  /** A disabled log statement via the logger API. */
+  @Benchmark
+  public long logger_disabled() {
+    logger.atFine()."Hello \{"World"}, count=\{count++}".log();
+    return appender.totalLength;
+  }
+
+  /** Appender which formats log messages into a reusable buffer and then discards them. */
+  private static final class DiscardingAppender extends AbstractAppender {
+    private final StringBuilder buffer = new StringBuilder();
+    // Read by benchmarks to ensure that formatting is not optimized away.
+    private long totalLength = 0;
+
+    DiscardingAppender() {
+      super("discarding", null, null, true, Property.EMPTY_ARRAY);
+    }
+
+    @Override
+    public void append(LogEvent event) {
+      buffer.setLength(0);
+      Message message = event.getMessage();
+      if (message instanceof StringBuilderFormattable) {
+        ((StringBuilderFormattable) message).formatTo(buffer);
+      } else {
+        buffer.append(message.getFormattedMessage());
+      }
+      totalLength += buffer.length();
+    }
+  }
+}
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.backend.system;
+
+import com.google.common.flogger.MetadataKey;
+import com.google.common.flogger.backend.LoggerBackend;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import net.goui.flogger.BenchmarkLoggers;
+import net.goui.flogger.FluentLogger;
+import net.goui.flogger.backend.common.BenchmarkLogData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end benchmarks for the JDK logging backend created by {@link SystemBackendFactory}, both
+ * called directly and via the logger API.
+ *
+ * <p>The root JDK logger is configured with a single handler which reads the formatted message of
+ * each log record and discards it, so these benchmarks include the cost of creating and publishing
+ * log records, but not of any handler formatting or I/O.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class SystemBackendBenchmark {
+  private static final MetadataKey<String> TASK_ID = MetadataKey.single("task_id", String.class);
+
+  private DiscardingHandler handler;
+  private SystemBackendFactory factory;
+  private LoggerBackend backend;
+  private FluentLogger logger;
+  private BenchmarkLogData logData;
+  private int count = 0;
+
+  @Setup
+  public void setUp() {
+    Logger root = Logger.getLogger("");
+    for (Handler h : root.getHandlers()) {
+      root.removeHandler(h);
+    }
+    handler = new DiscardingHandler();
+    root.addHandler(handler);
+    root.setLevel(Level.INFO);
+
+    factory = new SystemBackendFactory();
+    backend = factory.create("net.goui.flogger.Benchmark");
+    logger = BenchmarkLoggers.forBackend(backend);
+    logData =
+        BenchmarkLogData.withPrintfStyleArgs("Hello %s, value=%d", "World", 42)
+            .addMetadata(TASK_ID, "abc-123");
+  }
+
+  /**
+   * Creates a backend for a new class name each time, which is the cost paid for every logger
+   * during application startup. Run with {@code -prof gc} to see the allocation difference from
+   * not creating a JDK logger until a backend is first used.
+   */
+  @Benchmark
+  public LoggerBackend backend_create() {
+    return factory.create("net.goui.flogger.bench.Class" + count++);
+  }
+
+  /**
+   * Creates a backend for a new class name and then uses it, which binds (creates and registers)
+   * the JDK logger. This is the cost every logger paid when JDK loggers were bound eagerly, so the
+   * difference from {@link #backend_create()} is the saving for loggers which are never used.
+   */
+  @Benchmark
+  public boolean backend_createAndBind() {
+    return factory.create("net.goui.flogger.bench.Class" + count++).isLoggable(Level.FINE);
+  }
+
+  /** Logs directly via the backend (no logger API overhead). */
+  @Benchmark
+  public long backend_log() {
+    backend.log(logData);
+    return handler.totalLength;
+  }
+
+  /** An enabled template log statement via the logger API. */
+  @Benchmark
+  public long logger_template() {
+    logger.atInfo()."Hello \{"World"}, count=\{count++}".log();
+    return handler.totalLength;
+  }
+
+  /** A disabled log statement via the logger API. */
+  @Benchmark
+  public long logger_disabled() {
+    logger.atFine()."Hello \{"World"}, count=\{count++}".log();
+    return handler.totalLength;
+  }
+
+  /** Handler which reads the formatted message of log records and then discards them. */
+  private static final class DiscardingHandler extends Handler {
+    // Read by benchmarks to ensure that formatting is not optimized away.
+    private long totalLength = 0;
+
+    @Override
+    public void publish(LogRecord record) {
+      totalLength += record.getMessage().length();
+    }
+
+    @Override
+    public void flush() {}
+
+    @Override
+    public void close() {}
+  }
+}
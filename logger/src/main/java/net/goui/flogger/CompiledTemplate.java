@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger;
+
+import static java.lang.invoke.MethodType.methodType;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Arrays;
+import java.util.Formattable;
+import java.util.FormatProcessor;
+import java.util.Formatter;
+import java.util.List;
+
+/**
+ * The parsed form of a string template's fragments, which formats values according to the rules of
+ * {@link FormatProcessor#FMT}.
+ *
+ * <p>Templates with no format specifiers in any fragment (the common case) are formatted by simply
+ * appending fragments and values. Other templates are formatted via method handles obtained from
+ * {@link FormatProcessor#linkage(List, java.lang.invoke.MethodType) FormatProcessor.linkage()}.
+ *
+ * <p>When appending to an existing buffer, templates with format specifiers are formatted one
+ * fragment at a time, so only the fragments with format specifiers (and their values) result in
+ * intermediate strings, rather than the entire message.
+ */
+final class CompiledTemplate {
+  // Literal fragments, except for fragments with format specifiers (other than the last one).
+  private final String[] fragments;
+  // Formats an array of values into a String, or null for templates with no format specifiers.
+  private final MethodHandle formatter;
+  // Per-fragment formatters for a single value, with null elements for fragments without format
+  // specifiers. This is null if the template has no format specifiers.
+  private final MethodHandle[] fragmentFormatters;
+
+  static CompiledTemplate compile(List<String> fragments) {
+    String[] fragmentArray = fragments.toArray(String[]::new);
+    if (Arrays.stream(fragmentArray).noneMatch(CompiledTemplate::hasFormatSpecifiers)) {
+      return new CompiledTemplate(fragmentArray, null, null);
+    }
+    // Link the entire template first, so invalid templates fail in the same way as for FMT.
+    MethodHandle formatter = link(fragments);
+    int valueCount = fragmentArray.length - 1;
+    MethodHandle[] fragmentFormatters = new MethodHandle[valueCount];
+    for (int n = 0; n < valueCount; n++) {
+      if (hasFormatSpecifiers(fragmentArray[n])) {
+        // Format specifiers cannot span fragments, so each fragment can be formatted separately.
+        fragmentFormatters[n] = link(List.of(fragmentArray[n], ""));
+      }
+    }
+    // The last fragment has no value, but may still contain things like "%n" or "%%".
+    String lastFragment = fragmentArray[valueCount];
+    fragmentArray[valueCount] = FormatProcessor.FMT.process(StringTemplate.of(lastFragment));
+    return new CompiledTemplate(fragmentArray, formatter, fragmentFormatters);
+  }
+
+  private static boolean hasFormatSpecifiers(String fragment) {
+    return fragment.indexOf('%') >= 0;
+  }
+
+  // Returns a method handle of type (Object[])String to format values for the given fragments.
+  private static MethodHandle link(List<String> fragments) {
+    Class<?>[] valueTypes = new Class<?>[fragments.size() - 1];
+    Arrays.fill(valueTypes, Object.class);
+    return FormatProcessor.FMT
+        .linkage(fragments, methodType(String.class, FormatProcessor.class, valueTypes))
+        .bindTo(FormatProcessor.FMT)
+        .asSpreader(Object[].class, valueTypes.length)
+        .asType(methodType(String.class, Object[].class));
+  }
+
+  private CompiledTemplate(
+      String[] fragments, MethodHandle formatter, MethodHandle[] fragmentFormatters) {
+    this.fragments = fragments;
+    this.formatter = formatter;
+    this.fragmentFormatters = fragmentFormatters;
+  }
+
+  /** Formats the given values (which must match the number of values in the template). */
+  String format(List<Object> values) {
+    if (formatter == null) {
+      return appendTo(new StringBuilder(), values).toString();
+    }
+    return invoke(formatter, values.toArray());
+  }
+
+  /** Appends the formatted values (which must match the number of values in the template). */
+  StringBuilder appendTo(StringBuilder buffer, List<Object> values) {
+    return appendTo(buffer, values, Integer.MAX_VALUE - 1);
+  }
+
+  /**
+   * Appends the formatted values (which must match the number of values in the template), but
+   * stops appending once the length of the buffer exceeds {@code maxEnd}. This bounds the cost of
+   * formatting when the caller will truncate the result. The bound is checked before each fragment
+   * and value, and each is appended at most up to one character beyond {@code maxEnd}.
+   *
+   * <p>Values for fragments with format specifiers are still formatted into an intermediate
+   * string in full, since the linked formatter cannot be stopped part way through, but they are
+   * not formatted at all once the limit has been reached.
+   */
+  StringBuilder appendTo(StringBuilder buffer, List<Object> values, int maxEnd) {
+    int valueCount = fragments.length - 1;
+    for (int n = 0; n < valueCount; n++) {
+      Object value = values.get(n);
+      MethodHandle fragmentFormatter = fragmentFormatters != null ? fragmentFormatters[n] : null;
+      if (fragmentFormatter == null) {
+        if (!appendBounded(buffer, fragments[n], maxEnd) || !appendValue(buffer, value, maxEnd)) {
+          return buffer;
+        }
+      } else if (!appendBounded(buffer, invoke(fragmentFormatter, new Object[] {value}), maxEnd)) {
+        return buffer;
+      }
+    }
+    appendBounded(buffer, fragments[valueCount], maxEnd);
+    return buffer;
+  }
+
+  private static String invoke(MethodHandle formatter, Object[] values) {
+    try {
+      return (String) formatter.invokeExact(values);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      // Not possible since formatting does not throw checked exceptions.
+      throw new AssertionError(t);
+    }
+  }
+
+  // Appends at most up to one character beyond maxEnd, returning whether there is still space
+  // left for more text (i.e. the buffer has not exceeded maxEnd).
+  private static boolean appendBounded(StringBuilder buffer, CharSequence s, int maxEnd) {
+    int remaining = maxEnd + 1 - buffer.length();
+    if (remaining > 0) {
+      buffer.append(s, 0, Math.min(s.length(), remaining));
+    }
+    return buffer.length() <= maxEnd;
+  }
+
+  // Equivalent to formatting the value with "%s", which is implied when no format is given.
+  private static boolean appendValue(StringBuilder buffer, Object value, int maxEnd) {
+    if (value instanceof CharSequence) {
+      return appendBounded(buffer, (CharSequence) value, maxEnd);
+    }
+    if (value instanceof Formattable) {
+      new Formatter(new BoundedAppendable(buffer, maxEnd)).format("%s", value);
+      return buffer.length() <= maxEnd;
+    }
+    int start = buffer.length();
+    if (value instanceof Integer || value instanceof Long) {
+      buffer.append(((Number) value).longValue());
+    } else if (value instanceof Double) {
+      buffer.append(((Double) value).doubleValue());
+    } else if (value instanceof Boolean) {
+      buffer.append(((Boolean) value).booleanValue());
+    } else {
+      // Other values (e.g. collections) must be converted to a String first.
+      return appendBounded(buffer, String.valueOf(value), maxEnd);
+    }
+    // Numbers and booleans are short, so they are appended in full and then truncated.
+    if (buffer.length() > maxEnd + 1) {
+      buffer.setLength(Math.max(start, maxEnd + 1));
+    }
+    return buffer.length() <= maxEnd;
+  }
+
+  // Lets Formattable values write directly into the buffer, discarding text beyond the limit.
+  private static final class BoundedAppendable implements Appendable {
+    private final StringBuilder buffer;
+    private final int maxEnd;
+
+    BoundedAppendable(StringBuilder buffer, int maxEnd) {
+      this.buffer = buffer;
+      this.maxEnd = maxEnd;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq) {
+      appendBounded(buffer, csq != null ? csq : "null", maxEnd);
+      return this;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) {
+      CharSequence s = csq != null ? csq : "null";
+      int remaining = maxEnd + 1 - buffer.length();
+      if (remaining > 0) {
+        buffer.append(s, start, end - start <= remaining ? end : start + remaining);
+      }
+      return this;
+    }
+
+    @Override
+    public Appendable append(char c) {
+      if (buffer.length() <= maxEnd) {
+        buffer.append(c);
+      }
+      return this;
+    }
+  }
+}
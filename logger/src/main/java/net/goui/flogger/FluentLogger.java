@@ -17,8 +17,8 @@ import com.google.common.flogger.LazyArg;
 import com.google.common.flogger.LogSite;
 import com.google.common.flogger.backend.LoggerBackend;
 import com.google.common.flogger.backend.Platform;
-import java.util.FormatProcessor;
 import java.util.logging.Level;
+import net.goui.flogger.backend.common.TemplateMessage;
 
 /**
  * A drop in replacement for {@code com.google.common.flogger.FluentLogger} which supports both:
@@ -102,18 +102,26 @@ public final class FluentLogger extends AbstractLogger<NextLoggingApi> {
     @Override
     public LogString process(StringTemplate template) {
       // Until Flogger has a better notion of passing "pre-processed" log messages to the backend,
-      // this will have to do.
+      // the template is passed as the single argument of a "%s" format message. Backends which
+      // recognize TemplateMessage can format it directly, and others just use its toString().
       return () -> {
-        // Lambdas get executed in a special stack environment, but this works if skip is 0.
-        // Otherwise, it could also be evaluate outside the lambda just as easily.
-        LogSite logSite = Platform.getCallerFinder().findLogSite(Context.class, /* skip= */ 0);
+        // Log sites are cached per template literal, since stack walking is expensive.
+        LogSite logSite = LogSiteCache.get(template);
+        if (logSite == null) {
+          // Lambdas get executed in a special stack environment, but this works if skip is 0.
+          // Otherwise, it could also be evaluate outside the lambda just as easily.
+          logSite = Platform.getCallerFinder().findLogSite(Context.class, /* skip= */ 0);
+          LogSiteCache.put(template, logSite);
+        }
         withInjectedLogSite(logSite).log("%s", FluentLogger.lazilyInterpolate(template));
       };
     }
   }
 
-  static LazyArg<String> lazilyInterpolate(StringTemplate template) {
-    return () -> FormatProcessor.FMT.process(new LogTemplate(template));
+  // Lazy arguments are only evaluated after rate limiting, and the resulting LogTemplate (with any
+  // LazyArg values resolved) replaces the lazy argument in the log data passed to the backend.
+  static LazyArg<TemplateMessage> lazilyInterpolate(StringTemplate template) {
+    return () -> new LogTemplate(template);
   }
 
   private static class NoOp extends GoogleLoggingApi.NoOp<NextLoggingApi>
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger;
+
+import static java.lang.StringTemplate.RAW;
+
+import com.google.common.flogger.LogSite;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Cache of resolved log sites for template log statements, keyed by the identity of the template's
+ * fragments list.
+ *
+ * <p>Determining the log site of a log statement requires walking the stack, which is one of the
+ * most expensive parts of an enabled log statement. However, the fragments list of a template
+ * literal is the same instance each time a given call site is executed, and is not shared with any
+ * other template literal (even those with identical text), so it can be used to identify the call
+ * site, and the log site need only be determined once.
+ *
+ * <p>Only templates created from template literals are cached, since templates created dynamically
+ * (e.g. via {@link StringTemplate#of(List, List)}) can share fragments arbitrarily. However, if the
+ * same template literal instance is passed to more than one log statement (e.g. by calling {@code
+ * process()} explicitly), then all those log statements will share the log site of whichever
+ * statement was executed first.
+ *
+ * <p>This is implemented as a simple lock-free, fixed size hash table (with no deletion) rather than
+ * a {@code ConcurrentHashMap}, since identity based lookup must not allocate and the number of
+ * template log statements in an application is bounded. Once the table is half full, no further
+ * entries are added, and log sites for uncached templates are determined on each call.
+ */
+final class LogSiteCache {
+  // Power of two, with at most half the entries used to keep probe sequences short.
+  private static final int CAPACITY = 1 << 13;
+  private static final int MAX_ENTRIES = CAPACITY / 2;
+
+  // The class of templates created from template literals (any literal will do).
+  private static final Class<?> LITERAL_TEMPLATE_CLASS = RAW."\{null}".getClass();
+
+  private static final AtomicReferenceArray<Entry> table = new AtomicReferenceArray<>(CAPACITY);
+  private static final AtomicInteger size = new AtomicInteger();
+
+  private static final class Entry {
+    private final List<String> fragments;
+    private final LogSite logSite;
+
+    Entry(List<String> fragments, LogSite logSite) {
+      this.fragments = fragments;
+      this.logSite = logSite;
+    }
+  }
+
+  /** Returns the cached log site for the given template, or {@code null} if not cached. */
+  static LogSite get(StringTemplate template) {
+    if (template.getClass() != LITERAL_TEMPLATE_CLASS) {
+      return null;
+    }
+    List<String> fragments = template.fragments();
+    for (int index = indexOf(fragments); ; index = (index + 1) & (CAPACITY - 1)) {
+      Entry entry = table.get(index);
+      if (entry == null) {
+        return null;
+      }
+      if (entry.fragments == fragments) {
+        return entry.logSite;
+      }
+    }
+  }
+
+  /**
+   * Caches the log site for the given template (if possible). If another log site is already cached
+   * for the same template, it is not replaced.
+   */
+  static void put(StringTemplate template, LogSite logSite) {
+    if (template.getClass() != LITERAL_TEMPLATE_CLASS || size.get() >= MAX_ENTRIES) {
+      return;
+    }
+    List<String> fragments = template.fragments();
+    Entry newEntry = new Entry(fragments, logSite);
+    for (int index = indexOf(fragments); ; index = (index + 1) & (CAPACITY - 1)) {
+      Entry entry = table.get(index);
+      if (entry == null) {
+        if (table.compareAndSet(index, null, newEntry)) {
+          size.incrementAndGet();
+          return;
+        }
+        // Lost a race for this slot, so re-read it (it might now hold the same template).
+        entry = table.get(index);
+      }
+      if (entry.fragments == fragments) {
+        return;
+      }
+    }
+  }
+
+  private static int indexOf(List<String> fragments) {
+    int hash = System.identityHashCode(fragments);
+    // Spread higher bits downwards since identity hash codes are not uniformly distributed.
+    return (hash ^ (hash >>> 16)) & (CAPACITY - 1);
+  }
+
+  /** Returns the number of cached log sites. */
+  static int size() {
+    return size.get();
+  }
+
+  private LogSiteCache() {}
+}
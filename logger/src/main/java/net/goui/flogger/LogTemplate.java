@@ -11,17 +11,36 @@
 package net.goui.flogger;
 
 import com.google.common.flogger.LazyArg;
+import com.google.errorprone.annotations.concurrent.LazyInit;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Formattable;
+import java.util.FormattableFlags;
+import java.util.Formatter;
 import java.util.List;
+import net.goui.flogger.backend.common.TemplateMessage;
 
-/** Adapter to efficiently unwrap {@link LazyArg} arguments in a {@link StringTemplate}. */
-final class LogTemplate implements StringTemplate {
+/**
+ * The resolved form of a {@link StringTemplate} log message, with any {@link LazyArg} values
+ * evaluated, which is passed to logger backends as a {@link TemplateMessage}.
+ *
+ * <p>This class is also {@link Formattable}, which allows formatters unaware of {@link
+ * TemplateMessage} (e.g. Flogger's own message formatting) to append the message directly into
+ * their output buffer, rather than creating an intermediate {@code String} via {@link
+ * #toString()}.
+ */
+final class LogTemplate implements TemplateMessage, Formattable {
   private final List<String> fragments;
   private final List<Object> values;
+  private final CompiledTemplate compiled;
+  // Formatted lazily, since backends which recognize template messages do not need it.
+  @LazyInit private String formatted;
 
   LogTemplate(StringTemplate delegate) {
     this.fragments = delegate.fragments();
     this.values = resolveLazyArgs(delegate.values());
+    // Fails for invalid format specifiers, before any backend processing occurs.
+    this.compiled = TemplateCache.get(fragments);
   }
 
   private static List<Object> resolveLazyArgs(List<Object> values) {
@@ -39,16 +58,70 @@ final class LogTemplate implements StringTemplate {
     for (Object value : values) {
       resolved.add(value instanceof LazyArg ? ((LazyArg<?>) value).evaluate() : value);
     }
-    return resolved;
+    return Collections.unmodifiableList(resolved);
   }
 
   @Override
-  public List<String> fragments() {
+  public List<String> getFragments() {
     return fragments;
   }
 
   @Override
-  public List<Object> values() {
+  public List<Object> getValues() {
     return values;
   }
+
+  @Override
+  public void appendTo(StringBuilder buffer) {
+    String message = formatted;
+    if (message != null) {
+      buffer.append(message);
+    } else {
+      compiled.appendTo(buffer, values);
+    }
+  }
+
+  @Override
+  public void appendTo(StringBuilder buffer, int maxLength) {
+    int maxEnd = (int) Math.min((long) buffer.length() + maxLength, Integer.MAX_VALUE - 1);
+    String message = formatted;
+    if (message != null) {
+      buffer.append(message, 0, Math.min(message.length(), maxEnd + 1 - buffer.length()));
+    } else {
+      compiled.appendTo(buffer, values, maxEnd);
+    }
+  }
+
+  @Override
+  public void formatTo(Formatter formatter, int flags, int width, int precision) {
+    Appendable out = formatter.out();
+    if (out instanceof StringBuilder && flags == 0 && width == -1 && precision == -1) {
+      // The overwhelmingly common case of formatting via "%s" into a StringBuilder.
+      appendTo((StringBuilder) out);
+    } else {
+      // Let the formatter handle padding, truncation and case conversion, as it would for a String.
+      StringBuilder spec = new StringBuilder("%");
+      if ((flags & FormattableFlags.LEFT_JUSTIFY) != 0) {
+        spec.append('-');
+      }
+      if (width != -1) {
+        spec.append(width);
+      }
+      if (precision != -1) {
+        spec.append('.').append(precision);
+      }
+      spec.append((flags & FormattableFlags.UPPERCASE) != 0 ? 'S' : 's');
+      formatter.format(spec.toString(), toString());
+    }
+  }
+
+  @Override
+  public String toString() {
+    // @LazyInit pattern: http://jeremymanson.blogspot.com/2008/12/benign-data-races-in-java.html
+    String message = formatted;
+    if (message == null) {
+      formatted = message = compiled.format(values);
+    }
+    return message;
+  }
 }
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger;
+
+import java.lang.invoke.MethodType;
+import java.util.FormatProcessor;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of {@link CompiledTemplate compiled} format templates, keyed by the fragments of a {@link
+ * StringTemplate}.
+ *
+ * <p>Using {@link FormatProcessor#process(StringTemplate)} directly means that the fragments of a
+ * template are re-parsed for format specifiers (e.g. {@code "%#x"}) every time it is processed.
+ * However, the fragments list of a template literal is the same instance each time a given call
+ * site is executed, so the parsed form can be computed once (via {@link
+ * FormatProcessor#linkage(List, MethodType)}) and cached. Repeat executions then only need to bind
+ * the template values.
+ *
+ * <p>The cache is keyed on the fragments list itself. Since the fragments list of a template
+ * literal is always the same instance, the common case of an equality check is just an identity
+ * check. Templates created dynamically (e.g. via {@link StringTemplate#combine(StringTemplate...)})
+ * also work, but are compared by content. To avoid unbounded memory use in applications which
+ * create many distinct dynamic templates, the cache stops accepting new entries once it is full,
+ * after which uncached templates are compiled on each use.
+ */
+final class TemplateCache {
+  // Bigger than the number of distinct template log statements in any reasonable application, but
+  // small enough to avoid memory issues if code generates templates dynamically.
+  private static final int MAX_CACHE_SIZE = 4096;
+
+  private static final ConcurrentHashMap<List<String>, CompiledTemplate> cache =
+      new ConcurrentHashMap<>();
+  private static final LongAdder hitCount = new LongAdder();
+  private static final LongAdder missCount = new LongAdder();
+
+  /**
+   * Returns the compiled form of the given template fragments, according to the rules of {@link
+   * FormatProcessor#FMT}.
+   *
+   * @throws java.util.IllegalFormatException if the fragments contain invalid format specifiers
+   *     (this is the same exception as would be thrown by {@link FormatProcessor#FMT}).
+   */
+  static CompiledTemplate get(List<String> fragments) {
+    CompiledTemplate compiled = cache.get(fragments);
+    if (compiled != null) {
+      hitCount.increment();
+      return compiled;
+    }
+    missCount.increment();
+    compiled = CompiledTemplate.compile(fragments);
+    if (cache.size() < MAX_CACHE_SIZE) {
+      CompiledTemplate existing = cache.putIfAbsent(fragments, compiled);
+      if (existing != null) {
+        compiled = existing;
+      }
+    }
+    return compiled;
+  }
+
+  /**
+   * Formats the given template according to {@link FormatProcessor#FMT}, using a cached compiled
+   * form of its fragments where possible. Any {@code LazyArg} values must already have been
+   * resolved.
+   */
+  static String format(StringTemplate template) {
+    return get(template.fragments()).format(template.values());
+  }
+
+  /** Returns the number of templates formatted using a previously cached entry. */
+  static long getHitCount() {
+    return hitCount.sum();
+  }
+
+  /** Returns the number of templates formatted without a previously cached entry. */
+  static long getMissCount() {
+    return missCount.sum();
+  }
+
+  /** Returns the number of cached entries. */
+  static int size() {
+    return cache.size();
+  }
+
+  private TemplateCache() {}
+}
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.lang.StringTemplate.RAW;
+
+import com.google.common.flogger.LogSite;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class LogSiteCacheTest {
+  private static final LogSite FIRST_SITE =
+      LogSite.injectedLogSite("com/example/Foo", "first", 123, "Foo.java");
+  private static final LogSite SECOND_SITE =
+      LogSite.injectedLogSite("com/example/Foo", "second", 456, "Foo.java");
+
+  @Test
+  public void testTemplateLiterals() {
+    List<StringTemplate> templates = new ArrayList<>();
+    for (int n = 0; n < 3; n++) {
+      templates.add(RAW."Hello \{n}");
+    }
+    // Same text, but a different template literal (i.e. a different call site).
+    StringTemplate other = RAW."Hello \{42}";
+
+    assertThat(LogSiteCache.get(templates.get(0))).isNull();
+    LogSiteCache.put(templates.get(0), FIRST_SITE);
+    for (StringTemplate t : templates) {
+      assertThat(LogSiteCache.get(t)).isSameInstanceAs(FIRST_SITE);
+    }
+    assertThat(LogSiteCache.get(other)).isNull();
+
+    // Existing entries are not replaced.
+    LogSiteCache.put(templates.get(1), SECOND_SITE);
+    assertThat(LogSiteCache.get(templates.get(2))).isSameInstanceAs(FIRST_SITE);
+
+    LogSiteCache.put(other, SECOND_SITE);
+    assertThat(LogSiteCache.get(other)).isSameInstanceAs(SECOND_SITE);
+  }
+
+  @Test
+  public void testDynamicTemplates_notCached() {
+    StringTemplate template = StringTemplate.of(List.of("Dynamic ", ""), List.of("value"));
+    int size = LogSiteCache.size();
+
+    LogSiteCache.put(template, FIRST_SITE);
+    assertThat(LogSiteCache.get(template)).isNull();
+    assertThat(LogSiteCache.size()).isEqualTo(size);
+  }
+}
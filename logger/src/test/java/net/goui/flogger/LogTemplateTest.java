@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger;
+
+import static com.google.common.flogger.LazyArgs.lazy;
+import static com.google.common.truth.Truth.assertThat;
+import static java.lang.StringTemplate.RAW;
+import static org.junit.Assert.assertThrows;
+
+import java.util.FormatProcessor;
+import java.util.Formattable;
+import java.util.UnknownFormatConversionException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class LogTemplateTest {
+  @Test
+  public void testLazyArgsResolved() {
+    int x = 23;
+    int y = 19;
+    LogTemplate template = new LogTemplate(RAW."\{x} + \{y} = \{lazy(() -> x + y)}");
+
+    assertThat(template.getFragments()).containsExactly("", " + ", " = ", "").inOrder();
+    assertThat(template.getValues()).containsExactly(23, 19, 42).inOrder();
+    assertThat(template.toString()).isEqualTo("23 + 19 = 42");
+    assertThat(appendTo(template)).isEqualTo("23 + 19 = 42");
+  }
+
+  @Test
+  public void testFormatSpecifiers() {
+    int x = 23;
+    LogTemplate template = new LogTemplate(RAW."x=%#x\{x}, null=\{null}");
+
+    assertThat(template.getValues()).containsExactly(23, null).inOrder();
+    assertThat(template.toString()).isEqualTo("x=0x17, null=null");
+    assertThat(appendTo(template)).isEqualTo("x=0x17, null=null");
+  }
+
+  @Test
+  public void testMixedFormatSpecifiers() {
+    int x = 23;
+    String s = "foo";
+    StringTemplate raw = RAW."100%% of \{s}, x=%-5d\{x}|%S\{s}%n\{x}%%%n";
+    String expected = FormatProcessor.FMT.process(raw);
+
+    LogTemplate template = new LogTemplate(raw);
+    assertThat(template.toString()).isEqualTo(expected);
+    assertThat(appendTo(template)).isEqualTo(expected);
+  }
+
+  @Test
+  public void testFormattable() {
+    int x = 23;
+    LogTemplate template = new LogTemplate(RAW."x=\{x}");
+
+    assertThat(String.format("<%s>", template)).isEqualTo("<x=23>");
+    assertThat(String.format("<%6s>", template)).isEqualTo("<  x=23>");
+    assertThat(String.format("<%-6.3S>", template)).isEqualTo("<X=2   >");
+  }
+
+  @Test
+  public void testInvalidFormatSpecifiers() {
+    assertThrows(UnknownFormatConversionException.class, () -> new LogTemplate(RAW."%Q\{"bad"}"));
+  }
+
+  @Test
+  public void testAppendWithMaxLength() {
+    String value = "0123456789";
+    LogTemplate template = new LogTemplate(RAW."a=\{value}, b=\{value}");
+
+    assertThat(appendTo(template, 100)).isEqualTo("a=0123456789, b=0123456789");
+    // Appending stops just beyond the limit (the caller is responsible for truncation).
+    assertThat(appendTo(template, 5)).isEqualTo("a=0123");
+    // Once formatted, the cached message is appended up to the same point.
+    assertThat(template.toString()).isEqualTo("a=0123456789, b=0123456789");
+    assertThat(appendTo(template, 5)).isEqualTo("a=0123");
+  }
+
+  @Test
+  public void testAppendWithMaxLength_nonStringValues() {
+    Formattable large =
+        (formatter, flags, width, precision) -> {
+          for (int n = 0; n < 1000; n++) {
+            formatter.format("%d", n % 10);
+          }
+        };
+    LogTemplate formattable = new LogTemplate(RAW."a=\{large}, b=\{large}");
+    assertThat(appendTo(formattable, 5)).isEqualTo("a=0123");
+
+    long number = 1234567890L;
+    LogTemplate numeric = new LogTemplate(RAW."\{number}, \{number}");
+    assertThat(appendTo(numeric, 5)).isEqualTo("123456");
+    assertThat(appendTo(numeric, 100)).isEqualTo("1234567890, 1234567890");
+  }
+
+  private static String appendTo(LogTemplate template, int maxLength) {
+    StringBuilder buffer = new StringBuilder("-> ");
+    template.appendTo(buffer, maxLength);
+    return buffer.substring(3);
+  }
+
+  private static String appendTo(LogTemplate template) {
+    StringBuilder buffer = new StringBuilder("-> ");
+    template.appendTo(buffer);
+    return buffer.substring(3);
+  }
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.lang.StringTemplate.RAW;
+import static org.junit.Assert.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IllegalFormatConversionException;
+import java.util.List;
+import java.util.UnknownFormatConversionException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class TemplateCacheTest {
+  @Test
+  public void testFormat_plain() {
+    for (int n = 0; n < 3; n++) {
+      String s = "Hello";
+      assertThat(TemplateCache.format(RAW."\{s}: n=\{n}, null=\{null}"))
+          .isEqualTo("Hello: n=" + n + ", null=null");
+    }
+  }
+
+  @Test
+  public void testFormat_formatSpecifiers() {
+    int x = 23;
+    double d = 1.2345;
+    assertThat(TemplateCache.format(RAW."%#x\{x} - %.2f\{d} - %5s\{"abc"}"))
+        .isEqualTo("0x17 - 1.23 -   abc");
+  }
+
+  @Test
+  public void testFormat_repeatedCallSiteIsCached() {
+    long hits = TemplateCache.getHitCount();
+    long misses = TemplateCache.getMissCount();
+    for (int n = 0; n < 10; n++) {
+      assertThat(TemplateCache.format(RAW."Count: %d\{n}")).isEqualTo("Count: " + n);
+    }
+    assertThat(TemplateCache.getMissCount() - misses).isEqualTo(1);
+    assertThat(TemplateCache.getHitCount() - hits).isEqualTo(9);
+  }
+
+  @Test
+  public void testFormat_dynamicTemplatesMatchByContent() {
+    List<String> fragments = List.of("Dynamic: ", "");
+    long hits = TemplateCache.getHitCount();
+    assertThat(TemplateCache.format(StringTemplate.of(fragments, List.of("foo"))))
+        .isEqualTo("Dynamic: foo");
+    assertThat(TemplateCache.format(StringTemplate.of(new ArrayList<>(fragments), List.of("bar"))))
+        .isEqualTo("Dynamic: bar");
+    assertThat(TemplateCache.getHitCount() - hits).isEqualTo(1);
+  }
+
+  @Test
+  public void testFormat_nullValues() {
+    StringTemplate template = StringTemplate.of(List.of("%d", ""), Arrays.asList((Object) null));
+    assertThat(TemplateCache.format(template)).isEqualTo("null");
+  }
+
+  @Test
+  public void testFormat_errors() {
+    int size = TemplateCache.size();
+    assertThrows(
+        UnknownFormatConversionException.class, () -> TemplateCache.format(RAW."%Q\{"bad"}"));
+    assertThat(TemplateCache.size()).isEqualTo(size);
+    assertThrows(
+        IllegalFormatConversionException.class,
+        () -> TemplateCache.format(RAW."%d\{"not a number"}"));
+  }
+}